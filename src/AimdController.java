@@ -0,0 +1,210 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sizes the in-flight window from what the network answers: the window grows while
+ * connects succeed or are refused and is cut by a factor when timeouts spike, the
+ * way TCP treats loss. The window is handed out as permits of {@link #permits()}.
+ * <p>
+ * Timeouts from a host that has never answered, or that times out almost always,
+ * are a dead address or a firewall dropping SYNs, not congestion, so they are kept
+ * out of the global signal. In a sweep of many addresses and few ports that leaves
+ * little else, so the first result from each host is watched separately: the window
+ * is also cut when its timeout share rises well above its own long-run baseline.
+ */
+public class AimdController {
+    // Rolling rates weigh roughly the last 50 results
+    private static final double ALPHA = 0.02;
+    private static final double BACKOFF_TIMEOUT_RATE = 0.25;
+    private static final double DECREASE_FACTOR = 0.7;
+    private static final double FILTERED_HOST_RATE = 0.9;
+    private static final int FILTERED_HOST_SAMPLES = 10;
+    private static final int MAX_TRACKED_HOSTS = 65536;
+    // The first-contact baseline moves ten times slower than the rolling rates
+    private static final double BASELINE_ALPHA = 0.002;
+    // Share of the usually answering first contacts that has to go quiet
+    private static final double BACKOFF_ANSWER_DROP = 0.5;
+
+    public enum Outcome {
+        SUCCESS,
+        REFUSED,
+        TIMEOUT
+    }
+
+    private final int minWindow;
+    private final int maxWindow;
+    private final WindowSemaphore permits;
+    private final Rates global;
+    private final Map<Long, Rates> hosts;
+    private double firstContactTimeout;
+    private double firstContactBaseline;
+    private long firstContacts;
+    private int window;
+    private boolean slowStart;
+    private double increaseCredit;
+    private int sinceDecrease;
+
+    public AimdController(int initialWindow, int minWindow, int maxWindow) {
+        if (minWindow < 1 || initialWindow < minWindow || maxWindow < initialWindow) {
+            throw new IllegalArgumentException("Window bounds must satisfy 1 <= min <= initial <= max");
+        }
+        this.minWindow = minWindow;
+        this.maxWindow = maxWindow;
+        this.window = initialWindow;
+        this.permits = new WindowSemaphore(initialWindow);
+        // Seeding the global rates from one early timeout would cut the window for nothing
+        this.global = new Rates(false);
+        this.hosts = new HashMap<>();
+        this.slowStart = true;
+    }
+
+    /**
+     * Permits for in-flight probes; the controller adds and withdraws them as the window moves.
+     */
+    public Semaphore permits() {
+        return permits;
+    }
+
+    public synchronized int window() {
+        return window;
+    }
+
+    /**
+     * Feeds one finished connect into the rates and moves the window.
+     */
+    public synchronized void record(long host, Outcome outcome) {
+        if (hosts.size() >= MAX_TRACKED_HOSTS) {
+            hosts.clear();
+        }
+        Rates hostRates = hosts.get(host);
+        boolean firstContact = hostRates == null;
+        if (firstContact) {
+            hostRates = new Rates(true);
+            hosts.put(host, hostRates);
+            recordFirstContact(outcome);
+        }
+        hostRates.add(outcome);
+        if (outcome != Outcome.TIMEOUT) {
+            hostRates.answered = true;
+        }
+        boolean filtered = outcome == Outcome.TIMEOUT && (!hostRates.answered
+            || (hostRates.samples >= FILTERED_HOST_SAMPLES && hostRates.timeout >= FILTERED_HOST_RATE));
+        if (filtered && !firstContact) {
+            return;
+        }
+        if (!filtered) {
+            global.add(outcome);
+        }
+        sinceDecrease++;
+
+        boolean timeoutsRising = firstContactTimeout - firstContactBaseline
+            > BACKOFF_ANSWER_DROP * (1 - firstContactBaseline);
+        if (global.timeout > BACKOFF_TIMEOUT_RATE || timeoutsRising) {
+            // At most one cut per window of results, i.e. about once per round trip
+            if (sinceDecrease >= window) {
+                resize(Math.max(minWindow, (int) (window * DECREASE_FACTOR)));
+                slowStart = false;
+                sinceDecrease = 0;
+                increaseCredit = 0;
+            }
+        } else if (outcome != Outcome.TIMEOUT) {
+            // Slow start doubles the window per round trip until the first cut, then +1 per round trip
+            increaseCredit += slowStart ? 1.0 : 1.0 / window;
+            if (increaseCredit >= 1.0) {
+                int step = (int) increaseCredit;
+                increaseCredit -= step;
+                resize(Math.min(maxWindow, window + step));
+            }
+        }
+    }
+
+    /**
+     * Tracks the timeout share of first contacts twice: at the usual pace and at a
+     * ten times slower one that serves as the baseline. Both pace themselves by
+     * answers rather than results, so a mostly dead range is judged on as many
+     * answers as a live one, and both start as plain averages.
+     */
+    private void recordFirstContact(Outcome outcome) {
+        firstContacts++;
+        double timedOut = outcome == Outcome.TIMEOUT ? 1 : 0;
+        double answerShare = Math.max(0.01, 1 - firstContactBaseline);
+        firstContactTimeout += Math.max(ALPHA * answerShare, 1.0 / firstContacts) * (timedOut - firstContactTimeout);
+        firstContactBaseline += Math.max(BASELINE_ALPHA * answerShare, 1.0 / firstContacts)
+            * (timedOut - firstContactBaseline);
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(window, global.success, global.refused, global.timeout);
+    }
+
+    private void resize(int newWindow) {
+        if (newWindow > window) {
+            permits.release(newWindow - window);
+        } else if (newWindow < window) {
+            permits.withdraw(window - newWindow);
+        }
+        window = newWindow;
+    }
+
+    /**
+     * Live values for progress reporting. Rates are fractions of recent results.
+     */
+    public static final class Snapshot {
+        private final int window;
+        private final double successRate;
+        private final double refusalRate;
+        private final double timeoutRate;
+
+        Snapshot(int window, double successRate, double refusalRate, double timeoutRate) {
+            this.window = window;
+            this.successRate = successRate;
+            this.refusalRate = refusalRate;
+            this.timeoutRate = timeoutRate;
+        }
+
+        public int getWindow() { return window; }
+        public double getSuccessRate() { return successRate; }
+        public double getRefusalRate() { return refusalRate; }
+        public double getTimeoutRate() { return timeoutRate; }
+    }
+
+    /**
+     * Exponentially weighted share of each outcome.
+     */
+    private static final class Rates {
+        private final boolean seedWithFirst;
+        private double success;
+        private double refused;
+        private double timeout;
+        private int samples;
+        private boolean answered;
+
+        Rates(boolean seedWithFirst) {
+            this.seedWithFirst = seedWithFirst;
+        }
+
+        void add(Outcome outcome) {
+            // A seeded host reads as its first result instead of 0% of everything
+            double weight = samples == 0 && seedWithFirst ? 1.0 : ALPHA;
+            success += weight * ((outcome == Outcome.SUCCESS ? 1 : 0) - success);
+            refused += weight * ((outcome == Outcome.REFUSED ? 1 : 0) - refused);
+            timeout += weight * ((outcome == Outcome.TIMEOUT ? 1 : 0) - timeout);
+            if (samples < Integer.MAX_VALUE) {
+                samples++;
+            }
+        }
+    }
+
+    private static final class WindowSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        WindowSemaphore(int permits) {
+            super(permits);
+        }
+
+        void withdraw(int count) {
+            reducePermits(count);
+        }
+    }
+}
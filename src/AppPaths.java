@@ -16,6 +16,10 @@ public class AppPaths {
         return ensureDir(new File(BASE_DIR, "screenshots"));
     }
 
+    public static File cacheDir() {
+        return ensureDir(new File(BASE_DIR, "cache"));
+    }
+
     private static File resolveBaseDir() {
         File codeDir = getCodeDir();
         if (codeDir != null) {
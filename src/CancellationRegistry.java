@@ -0,0 +1,107 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything a scan has open that a blocked thread could be waiting on: sockets,
+ * the probe engine and capture child processes. Interrupts do not wake a thread
+ * inside a blocking connect or read, but closing its socket does, so {@link #cancel}
+ * closes and kills everything directly instead of waiting out the timeouts.
+ */
+public class CancellationRegistry {
+    // Long enough for the capture script to take its browser down with it
+    private static final long PROCESS_GRACE_MS = 500;
+
+    private final Set<Closeable> resources = ConcurrentHashMap.newKeySet();
+    private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Tracks a resource until {@link #unregister(Closeable)}. Once cancelled, the
+     * resource is closed on the spot and false is returned.
+     */
+    public boolean register(Closeable resource) {
+        resources.add(resource);
+        if (cancelled) {
+            // cancel() may have swept the set before the add; close it here either way
+            resources.remove(resource);
+            closeQuietly(resource);
+            return false;
+        }
+        return true;
+    }
+
+    public void unregister(Closeable resource) {
+        resources.remove(resource);
+    }
+
+    /**
+     * Tracks a child process until {@link #unregister(Process)}. Once cancelled, the
+     * process is killed on the spot and false is returned.
+     */
+    public boolean register(Process process) {
+        processes.add(process);
+        if (cancelled) {
+            processes.remove(process);
+            process.destroyForcibly();
+            return false;
+        }
+        return true;
+    }
+
+    public void unregister(Process process) {
+        processes.remove(process);
+    }
+
+    /**
+     * Closes every tracked resource and asks every child process to stop. Processes
+     * that are still alive after a short grace period are killed from a background
+     * thread, so this returns right away.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Closeable resource : resources) {
+            resources.remove(resource);
+            closeQuietly(resource);
+        }
+        // Captures unregister once their process is gone or they were interrupted; reap from a copy
+        List<Process> running = new ArrayList<>(processes);
+        if (running.isEmpty()) {
+            return;
+        }
+        for (Process process : running) {
+            process.destroy();
+        }
+        Thread reaper = new Thread(() -> {
+            long deadline = System.currentTimeMillis() + PROCESS_GRACE_MS;
+            for (Process process : running) {
+                try {
+                    long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                    if (!process.waitFor(remaining, TimeUnit.MILLISECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                }
+                processes.remove(process);
+            }
+        }, "CancellationReaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    private static void closeQuietly(Closeable resource) {
+        try {
+            resource.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,236 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the scanner inside the machine's socket limits. Every probe socket is
+ * counted while open, and every connection we close after it was established is
+ * counted for as long as the OS keeps it in TIME_WAIT, since both hold a local
+ * port. Dispatch waits in {@link #awaitHeadroom} while ports or file descriptors
+ * run short, instead of running into EMFILE or EADDRNOTAVAIL.
+ * <p>
+ * With MC_SCANNER_RST_CLOSE=1 finished probes are closed with a reset
+ * ({@code SO_LINGER} 0), which skips TIME_WAIT entirely.
+ */
+public final class ConnectionManager {
+    // Leave the rest to the JVM, the GUI and whatever else runs on the box
+    private static final double HEADROOM_SHARE = 0.9;
+    private static final long COOLDOWN_MS = 500;
+    private static final long FD_SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final ConnectionManager SHARED = new ConnectionManager();
+
+    private final boolean resetOnClose;
+    private final int localPorts;
+    private final long maxDescriptors;
+    private final OperatingSystemMXBean os;
+    private final AtomicInteger open = new AtomicInteger();
+    private final TimeWaitCounter timeWait;
+    private volatile long cooldownUntil;
+    private volatile long sampledDescriptors = -1;
+    private volatile int openAtSample;
+    private volatile long nextSampleAt = System.nanoTime();
+
+    private ConnectionManager() {
+        String rst = System.getenv("MC_SCANNER_RST_CLOSE");
+        this.resetOnClose = "1".equals(rst) || "true".equalsIgnoreCase(rst);
+        String osName = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        this.localPorts = localPortCount(osName);
+        this.timeWait = new TimeWaitCounter(timeWaitSeconds(osName));
+        this.os = ManagementFactory.getOperatingSystemMXBean();
+        this.maxDescriptors = os instanceof com.sun.management.UnixOperatingSystemMXBean
+            ? ((com.sun.management.UnixOperatingSystemMXBean) os).getMaxFileDescriptorCount()
+            : -1;
+    }
+
+    public static ConnectionManager shared() {
+        return SHARED;
+    }
+
+    public boolean isResetOnClose() {
+        return resetOnClose;
+    }
+
+    /**
+     * True while a new connection fits under both the local port and the file
+     * descriptor limit, and no exhaustion error was seen in the last moments.
+     */
+    public boolean hasHeadroom() {
+        if (System.currentTimeMillis() < cooldownUntil) {
+            return false;
+        }
+        if (open.get() + timeWait.count() >= localPorts * HEADROOM_SHARE) {
+            return false;
+        }
+        return maxDescriptors <= 0 || estimatedDescriptors() < maxDescriptors * HEADROOM_SHARE;
+    }
+
+    /**
+     * Blocks until {@link #hasHeadroom()}; called before each probe is dispatched.
+     */
+    public void awaitHeadroom() throws InterruptedException {
+        while (!hasHeadroom()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    public void opened(SocketChannel channel) throws IOException {
+        open.incrementAndGet();
+        if (resetOnClose) {
+            channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+        }
+    }
+
+    public void opened(Socket socket) throws SocketException {
+        open.incrementAndGet();
+        if (resetOnClose) {
+            socket.setSoLinger(true, 0);
+        }
+    }
+
+    /**
+     * Call once per {@code opened}, when the socket is closed.
+     *
+     * @param established whether the connection got past the handshake; only then
+     *                    does our close leave a TIME_WAIT behind
+     */
+    public void closed(boolean established) {
+        open.decrementAndGet();
+        if (established && !resetOnClose) {
+            timeWait.add();
+        }
+    }
+
+    /**
+     * Out of descriptors or local ports: socket(), bind() or connect() failed because
+     * of this machine, which says nothing about the target.
+     */
+    public static boolean isExhaustion(Throwable error) {
+        if (!(error instanceof IOException)) {
+            return false;
+        }
+        String message = error.getMessage();
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase(Locale.ROOT);
+        if (lower.contains("too many open files") || lower.contains("no buffer space available")) {
+            return true;
+        }
+        // EADDRNOTAVAIL on Linux, WSAEADDRINUSE from connect() on Windows
+        return error instanceof SocketException
+            && (lower.contains("cannot assign requested address") || lower.contains("address already in use"));
+    }
+
+    /**
+     * Records an exhaustion error; dispatch pauses briefly so closes can catch up.
+     */
+    public void exhausted() {
+        long now = System.currentTimeMillis();
+        if (now >= cooldownUntil) {
+            System.err.println("[Connections] Out of sockets with " + open.get() + " open and ~"
+                + timeWait.count() + " in TIME_WAIT, pausing new connections");
+        }
+        cooldownUntil = now + COOLDOWN_MS;
+    }
+
+    /**
+     * One line for the scan log.
+     */
+    public String describe() {
+        return "local ports " + localPorts + ", file descriptors "
+            + (maxDescriptors > 0 ? String.valueOf(maxDescriptors) : "unknown")
+            + ", close " + (resetOnClose ? "with reset" : "normal (TIME_WAIT " + timeWait.seconds() + "s)");
+    }
+
+    /**
+     * The OS count is read twice a second at most; our own opens since then are added on top.
+     */
+    private long estimatedDescriptors() {
+        long now = System.nanoTime();
+        if (now - nextSampleAt >= 0) {
+            nextSampleAt = now + FD_SAMPLE_NANOS;
+            openAtSample = open.get();
+            sampledDescriptors = ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return sampledDescriptors + Math.max(0, open.get() - openAtSample);
+    }
+
+    private static int localPortCount(String osName) {
+        if (osName.contains("linux")) {
+            try {
+                String[] range = new String(Files.readAllBytes(new File("/proc/sys/net/ipv4/ip_local_port_range").toPath()),
+                    StandardCharsets.US_ASCII).trim().split("\\s+");
+                return Integer.parseInt(range[1]) - Integer.parseInt(range[0]) + 1;
+            } catch (IOException | RuntimeException ignored) {
+                return 60999 - 32768 + 1;
+            }
+        }
+        // Windows and macOS hand out 49152-65535 by default
+        return 65535 - 49152 + 1;
+    }
+
+    private static int timeWaitSeconds(String osName) {
+        if (osName.contains("windows")) {
+            return 120;
+        }
+        return osName.contains("mac") ? 30 : 60;
+    }
+
+    /**
+     * Closes per second over the last TIME_WAIT period, with a running total.
+     */
+    private static final class TimeWaitCounter {
+        private final int[] buckets;
+        private long currentSecond;
+        private int total;
+
+        TimeWaitCounter(int seconds) {
+            this.buckets = new int[seconds];
+        }
+
+        int seconds() {
+            return buckets.length;
+        }
+
+        synchronized void add() {
+            advance();
+            buckets[(int) (currentSecond % buckets.length)]++;
+            total++;
+        }
+
+        synchronized int count() {
+            advance();
+            return total;
+        }
+
+        private void advance() {
+            long second = System.currentTimeMillis() / 1000;
+            if (second - currentSecond >= buckets.length) {
+                Arrays.fill(buckets, 0);
+                total = 0;
+            } else {
+                for (long s = currentSecond + 1; s <= second; s++) {
+                    int index = (int) (s % buckets.length);
+                    total -= buckets[index];
+                    buckets[index] = 0;
+                }
+            }
+            currentSecond = Math.max(currentSecond, second);
+        }
+    }
+}
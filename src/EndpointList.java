@@ -0,0 +1,126 @@
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A short, fixed list of host:port pairs held in memory, such as the servers a
+ * monitoring run already knows about. Host keys are indexes into the list of
+ * distinct hosts, in order of first appearance.
+ */
+public class EndpointList implements TargetSource {
+    private final List<String> hosts;
+    private final long[] hostKeys;
+    private final int[] ports;
+    private final PortSet portSet;
+
+    public EndpointList(List<String> endpointHosts, List<Integer> endpointPorts) {
+        if (endpointHosts.size() != endpointPorts.size()) {
+            throw new IllegalArgumentException("Every endpoint needs a host and a port");
+        }
+        this.hosts = new ArrayList<>();
+        this.hostKeys = new long[endpointHosts.size()];
+        this.ports = new int[endpointPorts.size()];
+        Map<String, Integer> keys = new HashMap<>();
+        BitSet seenPorts = new BitSet();
+        for (int i = 0; i < hostKeys.length; i++) {
+            String host = endpointHosts.get(i);
+            Integer key = keys.get(host);
+            if (key == null) {
+                key = hosts.size();
+                keys.put(host, key);
+                hosts.add(host);
+            }
+            hostKeys[i] = key;
+            ports[i] = endpointPorts.get(i);
+            seenPorts.set(ports[i]);
+        }
+        this.portSet = PortSet.of(seenPorts);
+    }
+
+    @Override
+    public long size() {
+        return hostKeys.length;
+    }
+
+    @Override
+    public PortSet ports() {
+        return portSet;
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new ListCursor();
+    }
+
+    @Override
+    public Collection<String> hostNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (String host : hosts) {
+            if (!HostResolver.isLiteral(host)) {
+                names.add(host);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String hostText(long hostKey) {
+        return hosts.get((int) hostKey);
+    }
+
+    @Override
+    public List<String> describe() {
+        return Collections.singletonList(hostKeys.length + " known endpoint(s) on " + hosts.size() + " host(s)");
+    }
+
+    @Override
+    public String toString() {
+        return describe().get(0);
+    }
+
+    private final class ListCursor implements Cursor {
+        private int index = -1;
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= hostKeys.length) {
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+        @Override
+        public long hostKey() {
+            return hostKeys[index];
+        }
+
+        @Override
+        public int port() {
+            return ports[index];
+        }
+
+        @Override
+        public InetAddress address() throws UnknownHostException {
+            return HostResolver.shared().resolve(hostText(hostKeys[index]));
+        }
+
+        @Override
+        public String hostName() {
+            String host = hostText(hostKeys[index]);
+            return HostResolver.isLiteral(host) ? null : host;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Every target of a {@link TargetSet} on every port of a {@link PortSet}. Hosts take
+ * turns port by port so that one host reaching its rate cap does not hold the others back.
+ */
+public class GridTargets implements TargetSource {
+    private final TargetSet targets;
+    private final PortSet ports;
+
+    public GridTargets(TargetSet targets, PortSet ports) {
+        this.targets = targets;
+        this.ports = ports;
+    }
+
+    @Override
+    public long size() {
+        return targets.size() * ports.size();
+    }
+
+    @Override
+    public PortSet ports() {
+        return ports;
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new GridCursor();
+    }
+
+    @Override
+    public Cursor hosts() {
+        return new HostCursor();
+    }
+
+    @Override
+    public Collection<String> hostNames() {
+        return targets.names();
+    }
+
+    @Override
+    public String hostText(long hostKey) {
+        return targets.get(hostKey);
+    }
+
+    @Override
+    public List<String> describe() {
+        return targets.describe();
+    }
+
+    @Override
+    public String toString() {
+        return targets.toString();
+    }
+
+    private final class GridCursor implements Cursor {
+        private long hostIndex = -1;
+        private int port = ports.first();
+
+        @Override
+        public boolean next() {
+            if (++hostIndex == targets.size()) {
+                hostIndex = 0;
+                port = ports.next(port + 1);
+            }
+            return port >= 0;
+        }
+
+        @Override
+        public long hostKey() {
+            return hostIndex;
+        }
+
+        @Override
+        public int port() {
+            return port;
+        }
+
+        @Override
+        public InetAddress address() throws UnknownHostException {
+            return targets.address(hostIndex);
+        }
+
+        @Override
+        public String hostName() {
+            return targets.name(hostIndex);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final class HostCursor implements Cursor {
+        private long hostIndex = -1;
+
+        @Override
+        public boolean next() {
+            return ++hostIndex < targets.size();
+        }
+
+        @Override
+        public long hostKey() {
+            return hostIndex;
+        }
+
+        @Override
+        public int port() {
+            return ports.first();
+        }
+
+        @Override
+        public InetAddress address() throws UnknownHostException {
+            return targets.address(hostIndex);
+        }
+
+        @Override
+        public String hostName() {
+            return targets.name(hostIndex);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+
+/**
+ * Resolves target host names once and shares the answer with every probe of the
+ * scan, including the screenshot helper. Names on the default port follow their
+ * {@code _minecraft._tcp} SRV record first, like the game client. Answers are kept
+ * for {@code networkaddress.cache.ttl} seconds and failures for
+ * {@code networkaddress.cache.negative.ttl}, the same settings the JVM's own cache reads.
+ */
+public class HostResolver {
+    public static final int DEFAULT_PORT = 25565;
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9.]+|.*:.*");
+    private static final int PRERESOLVE_THREADS = 32;
+    private static final int MAX_ENTRIES = 65536;
+    private static final HostResolver SHARED = new HostResolver(
+        ttlMillis("networkaddress.cache.ttl", "sun.net.inetaddr.ttl", 30),
+        ttlMillis("networkaddress.cache.negative.ttl", "sun.net.inetaddr.negative.ttl", 10));
+
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Map<String, Cached<InetAddress>> addresses;
+    private final Map<String, Cached<Srv>> srvRecords;
+
+    HostResolver(long ttlMillis, long negativeTtlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.addresses = new ConcurrentHashMap<>();
+        this.srvRecords = new ConcurrentHashMap<>();
+    }
+
+    public static HostResolver shared() {
+        return SHARED;
+    }
+
+    /**
+     * Where a Minecraft client would connect for {@code host:port}. Returns an
+     * unresolved address when the name does not resolve; connecting to it fails
+     * with {@link UnknownHostException}.
+     */
+    public InetSocketAddress endpoint(String host, int port) {
+        String target = host;
+        int targetPort = port;
+        if (port == DEFAULT_PORT && usesSrv(host)) {
+            Srv srv = srv(host);
+            if (srv != null) {
+                target = srv.target;
+                targetPort = srv.port;
+            }
+        }
+        try {
+            return new InetSocketAddress(resolve(target), targetPort);
+        } catch (UnknownHostException e) {
+            return InetSocketAddress.createUnresolved(target, targetPort);
+        }
+    }
+
+    public InetAddress resolve(String host) throws UnknownHostException {
+        if (isLiteral(host)) {
+            // Literals are parsed, never looked up
+            return InetAddress.getByName(host);
+        }
+        String key = host.toLowerCase();
+        long now = System.currentTimeMillis();
+        Cached<InetAddress> cached = addresses.get(key);
+        if (cached == null || cached.isExpired(now)) {
+            InetAddress address = null;
+            try {
+                address = InetAddress.getByName(host);
+            } catch (UnknownHostException e) {
+                // Cached as a miss below
+            }
+            cached = new Cached<>(address, expiry(now, address != null ? ttlMillis : negativeTtlMillis));
+            put(addresses, key, cached);
+        }
+        if (cached.value == null) {
+            throw new UnknownHostException(host);
+        }
+        return cached.value;
+    }
+
+    /**
+     * Resolves every name in parallel before the scan starts, SRV records included when
+     * the scan covers the default port, so slow lookups overlap instead of adding up.
+     */
+    public void preresolve(Collection<String> hosts, boolean withSrv) throws InterruptedException {
+        List<String> names = new ArrayList<>();
+        for (String host : hosts) {
+            if (!isLiteral(host)) {
+                names.add(host);
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(PRERESOLVE_THREADS, names.size()));
+        try {
+            List<Future<?>> lookups = new ArrayList<>(names.size());
+            for (String name : names) {
+                lookups.add(pool.submit(() -> {
+                    if (withSrv) {
+                        endpoint(name, DEFAULT_PORT);
+                    }
+                    try {
+                        resolve(name);
+                    } catch (UnknownHostException ignored) {
+                        // Remembered as a miss; the probes report it
+                    }
+                }));
+            }
+            for (Future<?> lookup : lookups) {
+                try {
+                    lookup.get();
+                } catch (ExecutionException ignored) {
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private Srv srv(String host) {
+        String key = host.toLowerCase();
+        long now = System.currentTimeMillis();
+        Cached<Srv> cached = srvRecords.get(key);
+        if (cached == null || cached.isExpired(now)) {
+            Srv srv = lookupSrv(host);
+            cached = new Cached<>(srv, expiry(now, srv != null ? ttlMillis : negativeTtlMillis));
+            put(srvRecords, key, cached);
+        }
+        return cached.value;
+    }
+
+    /**
+     * Asks DNS for the SRV record through JNDI. Takes the lowest priority and,
+     * among equals, the highest weight; a missing record or a DNS error means none.
+     */
+    private static Srv lookupSrv(String host) {
+        Hashtable<String, String> env = new Hashtable<>();
+        env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+        env.put("com.sun.jndi.dns.timeout.initial", "1000");
+        env.put("com.sun.jndi.dns.timeout.retries", "2");
+        DirContext context = null;
+        try {
+            context = new InitialDirContext(env);
+            Attributes attributes = context.getAttributes("_minecraft._tcp." + host, new String[] {"SRV"});
+            Attribute records = attributes.get("SRV");
+            if (records == null) {
+                return null;
+            }
+            Srv best = null;
+            int bestPriority = Integer.MAX_VALUE;
+            int bestWeight = -1;
+            NamingEnumeration<?> values = records.getAll();
+            while (values.hasMore()) {
+                // "priority weight port target."
+                String[] parts = String.valueOf(values.next()).trim().split("\\s+");
+                if (parts.length != 4) {
+                    continue;
+                }
+                int priority = Integer.parseInt(parts[0]);
+                int weight = Integer.parseInt(parts[1]);
+                if (priority < bestPriority || (priority == bestPriority && weight > bestWeight)) {
+                    String target = parts[3].endsWith(".") ? parts[3].substring(0, parts[3].length() - 1) : parts[3];
+                    best = new Srv(target, Integer.parseInt(parts[2]));
+                    bestPriority = priority;
+                    bestWeight = weight;
+                }
+            }
+            return best;
+        } catch (NamingException | NumberFormatException e) {
+            return null;
+        } finally {
+            if (context != null) {
+                try {
+                    context.close();
+                } catch (NamingException ignored) {
+                }
+            }
+        }
+    }
+
+    private static boolean usesSrv(String host) {
+        return !isLiteral(host) && !"localhost".equalsIgnoreCase(host);
+    }
+
+    static boolean isLiteral(String host) {
+        return IP_LITERAL.matcher(host).matches();
+    }
+
+    private static long expiry(long now, long ttl) {
+        return ttl == Long.MAX_VALUE ? Long.MAX_VALUE : now + ttl;
+    }
+
+    private static <T> void put(Map<String, Cached<T>> cache, String key, Cached<T> value) {
+        if (cache.size() >= MAX_ENTRIES) {
+            long now = System.currentTimeMillis();
+            cache.values().removeIf(entry -> entry.isExpired(now));
+        }
+        cache.put(key, value);
+    }
+
+    /**
+     * Reads a JVM DNS cache setting in seconds; negative means keep forever.
+     */
+    private static long ttlMillis(String securityProperty, String systemProperty, long defaultSeconds) {
+        String value = Security.getProperty(securityProperty);
+        if (value == null) {
+            value = System.getProperty(systemProperty);
+        }
+        long seconds = defaultSeconds;
+        if (value != null) {
+            try {
+                seconds = Long.parseLong(value.trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return seconds < 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    private static final class Cached<T> {
+        private final T value;
+        private final long expiresAt;
+
+        Cached(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != Long.MAX_VALUE && now >= expiresAt;
+        }
+    }
+
+    private static final class Srv {
+        private final String target;
+        private final int port;
+
+        Srv(String target, int port) {
+            this.target = target;
+            this.port = port;
+        }
+    }
+}
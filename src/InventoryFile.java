@@ -0,0 +1,327 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A newline-delimited host:port inventory read straight from a memory-mapped file.
+ * IPv4 entries are parsed from the bytes without building strings; host names and
+ * bracketed IPv6 literals ("[2001:db8::1]:25565") are collected while the file is counted.
+ * Blank lines and lines starting with '#' are skipped; a missing port means 25565.
+ */
+public class InventoryFile implements TargetSource {
+    private static final int DEFAULT_PORT = 25565;
+    // IPv4 hosts use their address as key; everything else is numbered above it
+    private static final long NAME_KEY_BASE = 1L << 32;
+
+    private final File file;
+    private final MappedByteBuffer data;
+    private final long entries;
+    private final PortSet ports;
+    private final Map<String, Long> nameKeys;
+    private final List<String> names;
+
+    private InventoryFile(File file, MappedByteBuffer data, long entries, PortSet ports, Set<String> hostNames) {
+        this.file = file;
+        this.data = data;
+        this.entries = entries;
+        this.ports = ports;
+        this.nameKeys = new HashMap<>();
+        this.names = new ArrayList<>();
+        for (String name : hostNames) {
+            nameKey(name);
+        }
+    }
+
+    /**
+     * Maps the file and counts its entries in one pass over the bytes.
+     *
+     * @throws IOException if the file cannot be read or has no usable entry
+     */
+    public static InventoryFile open(File file) throws IOException {
+        MappedByteBuffer data;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Inventory files over 2 GB are not supported");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        LineParser parser = new LineParser(data);
+        BitSet portBits = new BitSet();
+        Set<String> hostNames = new LinkedHashSet<>();
+        long entries = 0;
+        while (parser.nextLine()) {
+            if (parser.parse()) {
+                entries++;
+                portBits.set(parser.port);
+                if (parser.ipv4 < 0) {
+                    hostNames.add(parser.hostString());
+                }
+            }
+        }
+        if (entries == 0) {
+            throw new IOException("No host:port entries in " + file.getName());
+        }
+        if (parser.malformed > 0) {
+            System.out.println("[Inventory] Skipped " + parser.malformed + " malformed line(s) in " + file.getName());
+        }
+        return new InventoryFile(file, data, entries, PortSet.of(portBits), hostNames);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public long size() {
+        return entries;
+    }
+
+    @Override
+    public PortSet ports() {
+        return ports;
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new InventoryCursor();
+    }
+
+    @Override
+    public synchronized Collection<String> hostNames() {
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public synchronized String hostText(long hostKey) {
+        if (hostKey < NAME_KEY_BASE) {
+            return (hostKey >>> 24) + "." + ((hostKey >>> 16) & 0xFF) + "." + ((hostKey >>> 8) & 0xFF)
+                + "." + (hostKey & 0xFF);
+        }
+        return names.get((int) (hostKey - NAME_KEY_BASE));
+    }
+
+    @Override
+    public List<String> describe() {
+        return Collections.singletonList("inventory " + file.getAbsolutePath() + " (" + entries + " entries)");
+    }
+
+    @Override
+    public String toString() {
+        return describe().get(0);
+    }
+
+    private synchronized long nameKey(String name) {
+        Long key = nameKeys.get(name);
+        if (key == null) {
+            key = NAME_KEY_BASE + names.size();
+            nameKeys.put(name, key);
+            names.add(name);
+        }
+        return key;
+    }
+
+    private final class InventoryCursor implements Cursor {
+        private final LineParser parser = new LineParser(data.duplicate());
+        private long hostKey;
+
+        @Override
+        public boolean next() {
+            while (parser.nextLine()) {
+                if (parser.parse()) {
+                    hostKey = parser.ipv4 >= 0 ? parser.ipv4 : nameKey(parser.hostString());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long hostKey() {
+            return hostKey;
+        }
+
+        @Override
+        public int port() {
+            return parser.port;
+        }
+
+        @Override
+        public InetAddress address() throws UnknownHostException {
+            if (hostKey < NAME_KEY_BASE) {
+                return InetAddress.getByAddress(new byte[] {
+                    (byte) (hostKey >>> 24), (byte) (hostKey >>> 16), (byte) (hostKey >>> 8), (byte) hostKey
+                });
+            }
+            return HostResolver.shared().resolve(hostText(hostKey));
+        }
+
+        @Override
+        public String hostName() {
+            return hostKey < NAME_KEY_BASE ? null : hostText(hostKey);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Walks lines of the mapped buffer with absolute reads and splits each into
+     * host bounds and port.
+     */
+    private static final class LineParser {
+        private final ByteBuffer data;
+        private final int limit;
+        private int position;
+        private int lineStart;
+        private int lineEnd;
+        private int hostStart;
+        private int hostEnd;
+        private long ipv4;
+        private int port;
+        private long malformed;
+
+        LineParser(ByteBuffer data) {
+            this.data = data;
+            this.limit = data.limit();
+        }
+
+        boolean nextLine() {
+            if (position >= limit) {
+                return false;
+            }
+            lineStart = position;
+            while (position < limit && data.get(position) != '\n') {
+                position++;
+            }
+            lineEnd = position;
+            position++;
+            return true;
+        }
+
+        /**
+         * Splits the current line. Returns false for blank, comment and malformed lines.
+         */
+        boolean parse() {
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && isSpace(data.get(start))) {
+                start++;
+            }
+            while (end > start && isSpace(data.get(end - 1))) {
+                end--;
+            }
+            if (start == end || data.get(start) == '#') {
+                return false;
+            }
+
+            int portStart = -1;
+            if (data.get(start) == '[') {
+                int close = indexOf(']', start, end);
+                if (close < 0) {
+                    malformed++;
+                    return false;
+                }
+                hostStart = start + 1;
+                hostEnd = close;
+                if (close + 1 < end) {
+                    if (data.get(close + 1) != ':') {
+                        malformed++;
+                        return false;
+                    }
+                    portStart = close + 2;
+                }
+            } else {
+                int colon = indexOf(':', start, end);
+                boolean singleColon = colon >= 0 && indexOf(':', colon + 1, end) < 0;
+                hostStart = start;
+                // A bare IPv6 literal has several colons and no port
+                hostEnd = singleColon ? colon : end;
+                portStart = singleColon ? colon + 1 : -1;
+            }
+
+            port = portStart < 0 ? DEFAULT_PORT : parsePort(portStart, end);
+            if (port < 0 || hostEnd <= hostStart) {
+                malformed++;
+                return false;
+            }
+            ipv4 = parseIpv4(hostStart, hostEnd);
+            return true;
+        }
+
+        String hostString() {
+            byte[] bytes = new byte[hostEnd - hostStart];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = data.get(hostStart + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int parsePort(int start, int end) {
+            if (start >= end || end - start > 5) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                byte digit = data.get(i);
+                if (digit < '0' || digit > '9') {
+                    return -1;
+                }
+                value = value * 10 + (digit - '0');
+            }
+            return value >= 1 && value <= 65535 ? value : -1;
+        }
+
+        private long parseIpv4(int start, int end) {
+            long value = 0;
+            int octets = 0;
+            int current = -1;
+            for (int i = start; i < end; i++) {
+                byte c = data.get(i);
+                if (c >= '0' && c <= '9') {
+                    current = (current < 0 ? 0 : current * 10) + (c - '0');
+                    if (current > 255) {
+                        return -1;
+                    }
+                } else if (c == '.' && current >= 0 && octets < 3) {
+                    value = (value << 8) | current;
+                    octets++;
+                    current = -1;
+                } else {
+                    return -1;
+                }
+            }
+            return current < 0 || octets != 3 ? -1 : (value << 8) | current;
+        }
+
+        private int indexOf(char target, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (data.get(i) == target) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isSpace(byte value) {
+            return value == ' ' || value == '\t' || value == '\r';
+        }
+    }
+}
@@ -1,16 +1,36 @@
 import java.io.*;
+import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import org.json.JSONObject;
 import org.json.JSONException;
 import org.json.JSONArray;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class MinecraftProtocol {
-    private static final int CONNECT_TIMEOUT = 3000;
-    private static final int READ_TIMEOUT = 5000;
+    // Ceilings; RttEstimator shortens them for hosts whose round trip is known
+    static final int CONNECT_TIMEOUT = 3000;
+    static final int READ_TIMEOUT = 5000;
+    static final int LOGIN_READ_TIMEOUT = 2000;
+    static final String PARSE_ERROR_VERSION = "Parse Error";
+    static final int MAX_STATUS_FRAME = 32767 + 8;
     private static final String DEFAULT_CHECK_USERNAME = "MCScanner";
     
     private static final int[] PROTOCOL_VERSIONS = {
@@ -19,6 +39,11 @@ public class MinecraftProtocol {
         340, 335, 316, 315, 210, 110, 109, 108, 107, 47, 5
     };
     
+    private static final Pattern VERSION_NUMBER = Pattern.compile("(?<![\\d.])(1\\.\\d+)(\\.\\d+)?");
+    private static final int[] PRIORITY_PROTOCOLS = {767, 765, 763, 762, 761, 760, 758, 754, 47};
+    private static final int MAX_LOGIN_PACKETS = 6;
+    private static final ExecutorService LOGIN_POOL = WorkerThreads.newCachedExecutor("WhitelistLogin");
+    
     // Mapping version names to protocol numbers
     private static final Map<String, Integer> VERSION_MAP = new HashMap<>();
     private static final Map<Integer, String> CLIENT_VERSION_MAP = new HashMap<>();
@@ -126,12 +151,88 @@ public class MinecraftProtocol {
 
     public static ServerInfo queryServer(String ip, int port, String checkUsername) {
         try {
-            return performHandshake(ip, port, normalizeCheckUsername(checkUsername));
+            return toServerInfo(ip, port, performHandshake(ip, port), checkUsername);
         } catch (Exception e) {
             return new ServerInfo(ip, port);
         }
     }
 
+    /**
+     * Builds the final result from a status response fetched by either the
+     * blocking path or {@link NioProbeEngine}. Runs the whitelist check, so it blocks.
+     */
+    public static ServerInfo toServerInfo(String ip, int port, StatusResponse status, String checkUsername) {
+        return toServerInfo(ip, port, status, checkUsername, WhitelistPolicy.DEFAULT);
+    }
+
+    public static ServerInfo toServerInfo(String ip, int port, StatusResponse status, String checkUsername,
+                                          WhitelistPolicy policy) {
+        return checkWhitelist(parseStatus(ip, port, status), checkUsername, policy);
+    }
+
+    /**
+     * The status half of {@link #toServerInfo}: parses the response without touching
+     * the network. The whitelist flag stays false until {@link #checkWhitelist} runs.
+     */
+    public static ServerInfo parseStatus(String ip, int port, StatusResponse status) {
+        try {
+            StatusJson json = StatusJson.parse(status.getJsonBytes());
+            return new ServerInfo(ip, port, true, json.getVersion(), json.getOnline(), json.getMax(),
+                json.getMotd(), false, status.getPing(), json.getProtocol());
+        } catch (JSONException e) {
+            return new ServerInfo(ip, port, true, PARSE_ERROR_VERSION, 0, 0, "", false, status.getPing());
+        }
+    }
+
+    /**
+     * The whitelist half of {@link #toServerInfo}. Blocks for the fake logins; responses
+     * that did not parse are returned as they are.
+     */
+    public static ServerInfo checkWhitelist(ServerInfo info, String checkUsername, WhitelistPolicy policy) {
+        return checkWhitelist(info, checkUsername, policy, null);
+    }
+
+    /**
+     * Same, with every login socket registered in {@code cancellation} (may be null)
+     * so that cancelling the scan closes them mid-connect or mid-read.
+     */
+    public static ServerInfo checkWhitelist(ServerInfo info, String checkUsername, WhitelistPolicy policy,
+                                            CancellationRegistry cancellation) {
+        return checkWhitelist(info, checkUsername, policy, cancellation, null);
+    }
+
+    /**
+     * Same, with every login connection waiting for {@code gate} (may be null) before
+     * it opens, so fake logins are paced like the scan's other connections.
+     */
+    public static ServerInfo checkWhitelist(ServerInfo info, String checkUsername, WhitelistPolicy policy,
+                                            CancellationRegistry cancellation, ConnectGate gate) {
+        if (!info.isOnline() || PARSE_ERROR_VERSION.equals(info.getVersion())) {
+            return info;
+        }
+        boolean hasWhitelist = checkWhitelistSmart(info.getIp(), info.getPort(), info.getVersion(),
+            info.getProtocolVersion(), normalizeCheckUsername(checkUsername), policy, cancellation, gate);
+        return info.withWhitelist(hasWhitelist);
+    }
+
+    static byte[] encodeStatusRequest(String host, int port) {
+        return PacketCodec.encodeStatusRequest(PROTOCOL_VERSIONS[0], host, port);
+    }
+
+    public static class StatusResponse {
+        private final byte[] json;
+        private final long ping;
+
+        public StatusResponse(byte[] json, long ping) {
+            this.json = json;
+            this.ping = ping;
+        }
+
+        public String getJson() { return new String(json, StandardCharsets.UTF_8); }
+        public byte[] getJsonBytes() { return json; }
+        public long getPing() { return ping; }
+    }
+
     private static String normalizeCheckUsername(String checkUsername) {
         if (checkUsername == null || !checkUsername.matches("[A-Za-z0-9_]{3,16}")) {
             return DEFAULT_CHECK_USERNAME;
@@ -139,104 +240,77 @@ public class MinecraftProtocol {
         return checkUsername;
     }
     
-    private static ServerInfo performHandshake(String ip, int port, String checkUsername) throws IOException {
+    private static StatusResponse performHandshake(String ip, int port) throws IOException {
         long startTime = System.currentTimeMillis();
         
-        try (Socket socket = new Socket()) {
-            socket.setSoTimeout(READ_TIMEOUT);
-            socket.connect(new InetSocketAddress(ip, port), CONNECT_TIMEOUT);
+        Socket socket = new Socket();
+        try {
+            ConnectionManager.shared().opened(socket);
+            connectMeasured(socket, ip, port);
+            socket.setSoTimeout(RttEstimator.shared().readTimeoutMs(ip, READ_TIMEOUT));
             
-            try (DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-                 DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            OutputStream out = socket.getOutputStream();
+            ByteBuffer packet = PacketCodec.acquire();
+            try (PacketCodec.Reader in = new PacketCodec.Reader(socket.getInputStream())) {
+                PacketCodec.putHandshake(packet, PROTOCOL_VERSIONS[0], ip, port, 1);
+                int start = PacketCodec.beginFrame(packet);
+                PacketCodec.putVarInt(packet, 0x00);
+                PacketCodec.endFrame(packet, start);
+                PacketCodec.writeTo(out, packet);
                 
-                sendHandshake(out, ip, port, PROTOCOL_VERSIONS[0]);
-                
-                out.writeByte(1);
-                out.writeByte(0);
-                
-                readVarInt(in);
-                int packetId = readVarInt(in);
+                ByteBuffer frame = in.readFrame(MAX_STATUS_FRAME);
+                int packetId = PacketCodec.getVarInt(frame);
                 
                 if (packetId != 0) {
                     throw new IOException("Invalid packet ID: " + packetId);
                 }
                 
-                int jsonLength = readVarInt(in);
-                if (jsonLength <= 0 || jsonLength > 32767) {
-                    throw new IOException("Invalid JSON length: " + jsonLength);
+                byte[] json;
+                try {
+                    json = PacketCodec.getStringBytes(frame, 32767);
+                } catch (IOException e) {
+                    throw new IOException("Invalid JSON length", e);
                 }
                 
-                byte[] jsonBytes = new byte[jsonLength];
-                in.readFully(jsonBytes);
-                String json = new String(jsonBytes, StandardCharsets.UTF_8);
-                
-                long now = System.currentTimeMillis();
-                out.writeByte(9);
-                out.writeByte(1);
-                out.writeLong(now);
+                PacketCodec.putPing(packet, System.currentTimeMillis());
+                PacketCodec.writeTo(out, packet);
                 
-                readVarInt(in);
-                readVarInt(in);
-                in.readLong();
+                frame = in.readFrame(MAX_STATUS_FRAME);
+                PacketCodec.getVarInt(frame);
+                frame.getLong();
                 
                 long ping = System.currentTimeMillis() - startTime;
                 
-                return parseServerInfo(ip, port, json, ping, checkUsername);
+                return new StatusResponse(json, ping);
+            } finally {
+                PacketCodec.release(packet);
             }
+        } finally {
+            closeCounted(socket);
         }
     }
-    
-    private static void sendHandshake(DataOutputStream out, String host, int port, int protocolVersion) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        DataOutputStream handshake = new DataOutputStream(buffer);
-        
-        handshake.writeByte(0);
-        writeVarInt(handshake, protocolVersion);
-        writeString(handshake, host);
-        handshake.writeShort(port);
-        writeVarInt(handshake, 1);
-        
-        byte[] packet = buffer.toByteArray();
-        writeVarInt(out, packet.length);
-        out.write(packet);
-    }
-    
-    private static ServerInfo parseServerInfo(String ip, int port, String json, long ping, String checkUsername) {
+
+    /**
+     * Closes a socket counted by {@link ConnectionManager#opened(Socket)}.
+     */
+    private static void closeCounted(Socket socket) {
         try {
-            JSONObject obj = new JSONObject(json);
-            
-            String version = obj.optJSONObject("version") != null
-                ? obj.getJSONObject("version").optString("name", "Unknown")
-                : "Unknown";
-            
-            int protocolVersion = obj.optJSONObject("version") != null
-                ? obj.getJSONObject("version").optInt("protocol", -1)
-                : -1;
-            
-            JSONObject players = obj.optJSONObject("players");
-            int online = players != null ? players.optInt("online", 0) : 0;
-            int max = players != null ? players.optInt("max", 0) : 0;
-            
-            String motd = "";
-            if (obj.has("description")) {
-                Object desc = obj.get("description");
-                if (desc instanceof String) {
-                    motd = (String) desc;
-                } else if (desc instanceof JSONObject) {
-                    motd = extractTextFromJson((JSONObject) desc);
-                }
-            }
-            
-            boolean hasWhitelist = checkWhitelistSmart(ip, port, version, protocolVersion, checkUsername);
-            
-            return new ServerInfo(ip, port, true, version, online, max, motd, hasWhitelist, ping, protocolVersion);
-            
-        } catch (JSONException e) {
-            return new ServerInfo(ip, port, true, "Parse Error", 0, 0, "", false, ping);
+            socket.close();
+        } catch (IOException ignored) {
         }
+        ConnectionManager.shared().closed(socket.isConnected());
+    }
+    
+    /**
+     * Connects within the host's RTT-based timeout and feeds the handshake time back.
+     */
+    private static void connectMeasured(Socket socket, String ip, int port) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        socket.connect(HostResolver.shared().endpoint(ip, port), RttEstimator.shared().connectTimeoutMs(ip));
+        RttEstimator.shared().sample(ip, System.currentTimeMillis() - startedAt);
     }
     
-    private static String extractTextFromJson(JSONObject json) {
+    static String extractTextFromJson(JSONObject json) {
         StringBuilder text = new StringBuilder();
         
         if (json.has("text")) {
@@ -262,7 +336,9 @@ public class MinecraftProtocol {
         return text.toString();
     }
     
-    private static boolean checkWhitelistSmart(String ip, int port, String version, int reportedProtocol, String checkUsername) {
+    private static boolean checkWhitelistSmart(String ip, int port, String version, int reportedProtocol,
+                                               String checkUsername, WhitelistPolicy policy,
+                                               CancellationRegistry cancellation, ConnectGate gate) {
         System.out.println("\n" + repeat("=", 70));
         System.out.println("[WhiteList Check] Starting for: " + ip + ":" + port);
         System.out.println("[WhiteList Check] Server version: " + version);
@@ -272,69 +348,238 @@ public class MinecraftProtocol {
         
         // Try to get protocol from reported version
         Integer detectedProtocol = getProtocolFromVersion(version);
-        
         if (detectedProtocol != null) {
             System.out.println("[WhiteList Check] Detected protocol from version: " + detectedProtocol);
-            WhitelistCheckResult result = checkByFakeLogin(ip, port, checkUsername, detectedProtocol);
-            if (result.status == CheckStatus.SUCCESS) {
-                System.out.println("[WhiteList Check] ✓ SUCCESS with detected protocol!");
-                System.out.println("[WhiteList Check] ✓ RESULT: " + (result.hasWhitelist ? "HAS WHITELIST" : "NO WHITELIST"));
-                return result.hasWhitelist;
-            }
         }
         
-        // If we have reported protocol from server, try it
-        if (reportedProtocol > 0) {
-            System.out.println("[WhiteList Check] Trying reported protocol: " + reportedProtocol);
-            WhitelistCheckResult result = checkByFakeLogin(ip, port, checkUsername, reportedProtocol);
-            if (result.status == CheckStatus.SUCCESS) {
-                System.out.println("[WhiteList Check] ✓ SUCCESS with reported protocol!");
-                System.out.println("[WhiteList Check] ✓ RESULT: " + (result.hasWhitelist ? "HAS WHITELIST" : "NO WHITELIST"));
-                return result.hasWhitelist;
+        ProtocolCache cache = ProtocolCache.shared();
+        Integer cachedProtocol = cache.lookup(ip, port, version, reportedProtocol);
+        LoginRace race = new LoginRace(ip, port, checkUsername, version, policy, cancellation, gate);
+        
+        if (cachedProtocol != null) {
+            System.out.println("[WhiteList Check] Trying cached protocol: " + cachedProtocol);
+            LoginProbeResult result = race.run(Collections.singletonList(cachedProtocol), 1);
+            if (result != null && result.outcome.isProtocolAccepted()) {
+                System.out.println("[WhiteList Check] ✓ SUCCESS with cached protocol!");
+            }
+            if (result != null) {
+                return conclude(ip, port, version, reportedProtocol, result);
             }
+            cache.invalidate(ip, port);
         }
         
-        // Fallback: try priority protocols
-        int[] priorityProtocols = {767, 765, 763, 762, 761, 760, 758, 754, 47};
-        System.out.println("[WhiteList Check] Trying priority protocols...");
+        // Detected and reported protocols are right for almost every server, so they go first on their own
+        List<Integer> likely = new ArrayList<>();
+        addCandidate(likely, detectedProtocol != null ? detectedProtocol : -1);
+        addCandidate(likely, reportedProtocol);
+        likely.remove(cachedProtocol);
         
-        for (int protocol : priorityProtocols) {
-            if (protocol == reportedProtocol || (detectedProtocol != null && protocol == detectedProtocol)) {
-                continue; // Already tried
+        List<Integer> fallback = new ArrayList<>();
+        for (int protocol : PRIORITY_PROTOCOLS) {
+            if (!likely.contains(protocol)) {
+                addCandidate(fallback, protocol);
             }
-            
-            WhitelistCheckResult result = checkByFakeLogin(ip, port, checkUsername, protocol);
-            
-            if (result.status == CheckStatus.SUCCESS) {
-                System.out.println("[WhiteList Check] ✓ RESULT: " + (result.hasWhitelist ? "HAS WHITELIST" : "NO WHITELIST"));
-                return result.hasWhitelist;
+        }
+        for (int protocol : PROTOCOL_VERSIONS) {
+            if (!likely.contains(protocol)) {
+                addCandidate(fallback, protocol);
             }
         }
+        fallback.remove(cachedProtocol);
+        fallback = ProtocolStats.shared().order(race.versionPattern, fallback);
         
-        // Last resort: try all remaining protocols
-        System.out.println("[WhiteList Check] Trying all remaining protocols...");
-        for (int protocol : PROTOCOL_VERSIONS) {
-            boolean alreadyTried = false;
-            for (int p : priorityProtocols) {
-                if (p == protocol) {
-                    alreadyTried = true;
-                    break;
-                }
+        LoginProbeResult result = race.run(likely, likely.size());
+        if (result != null && result.outcome.isProtocolAccepted()) {
+            System.out.println("[WhiteList Check] ✓ SUCCESS with " + (detectedProtocol != null ? "detected" : "reported")
+                + " protocol!");
+        }
+        if (result != null) {
+            return conclude(ip, port, version, reportedProtocol, result);
+        }
+        
+        System.out.println("[WhiteList Check] Racing fallback protocols, " + policy.getRaceWidth() + " at a time...");
+        result = race.run(fallback, policy.getRaceWidth());
+        if (result != null) {
+            return conclude(ip, port, version, reportedProtocol, result);
+        }
+        
+        System.out.println("[WhiteList Check] No conclusive answer after " + race.attempts
+            + " attempt(s) - could not confirm whitelist");
+        return false;
+    }
+
+    private static boolean conclude(String ip, int port, String version, int reportedProtocol, LoginProbeResult result) {
+        if (!result.outcome.isProtocolAccepted()) {
+            System.out.println("[WhiteList Check] Connection refused - stopping protocol search");
+            return false;
+        }
+        
+        ProtocolCache.shared().record(ip, port, version, reportedProtocol, result.protocol);
+        if (result.outcome == LoginOutcome.ONLINE_MODE || result.outcome == LoginOutcome.COMPRESSION) {
+            System.out.println("[WhiteList Check] ✓ Protocol " + result.protocol + " accepted (" + result.outcome
+                + ") - whitelist cannot be confirmed offline");
+        }
+        // Attempts log as they finish, interleaved with the others; repeat the deciding kick here
+        String kick = result.outcome == LoginOutcome.KICKED && !result.reason.isEmpty()
+            ? " (kicked: " + result.reason + ")"
+            : "";
+        System.out.println("[WhiteList Check] ✓ RESULT: " + (result.hasWhitelist ? "HAS WHITELIST" : "NO WHITELIST")
+            + kick);
+        return result.hasWhitelist;
+    }
+
+    private static void addCandidate(List<Integer> candidates, int protocol) {
+        if (protocol > 0 && !candidates.contains(protocol)) {
+            candidates.add(protocol);
+        }
+    }
+
+    /**
+     * Admits one new connection; blocks until the caller's rate limits allow it.
+     */
+    public interface ConnectGate {
+        void await() throws InterruptedException;
+    }
+
+    /**
+     * Limits for one endpoint's whitelist search: how many logins may run at once,
+     * how many may be opened in total and how long the whole search may take.
+     */
+    public static class WhitelistPolicy {
+        public static final WhitelistPolicy DEFAULT = new WhitelistPolicy(3, 16, 20000);
+
+        private final int raceWidth;
+        private final int maxAttempts;
+        private final long deadlineMs;
+
+        public WhitelistPolicy(int raceWidth, int maxAttempts, long deadlineMs) {
+            if (raceWidth < 1 || maxAttempts < 1 || deadlineMs < 1) {
+                throw new IllegalArgumentException("Whitelist policy limits must be positive");
             }
-            if (alreadyTried || protocol == reportedProtocol || 
-                (detectedProtocol != null && protocol == detectedProtocol)) {
-                continue;
+            this.raceWidth = raceWidth;
+            this.maxAttempts = maxAttempts;
+            this.deadlineMs = deadlineMs;
+        }
+
+        public int getRaceWidth() { return raceWidth; }
+        public int getMaxAttempts() { return maxAttempts; }
+        public long getDeadlineMs() { return deadlineMs; }
+    }
+
+    /**
+     * Keeps up to {@code width} login attempts in flight and stops at the first
+     * conclusive answer, closing the sockets of attempts that are still running.
+     * Attempts and elapsed time are counted across all {@link #run} calls.
+     */
+    private static final class LoginRace {
+        private final String ip;
+        private final int port;
+        private final String username;
+        private final String versionPattern;
+        private final WhitelistPolicy policy;
+        private final CancellationRegistry cancellation;
+        private final ConnectGate gate;
+        private final long deadline;
+        private int attempts;
+
+        LoginRace(String ip, int port, String username, String version, WhitelistPolicy policy,
+                  CancellationRegistry cancellation, ConnectGate gate) {
+            this.ip = ip;
+            this.port = port;
+            this.username = username;
+            this.versionPattern = ProtocolStats.versionPattern(version);
+            this.policy = policy;
+            this.cancellation = cancellation;
+            this.gate = gate;
+            this.deadline = System.currentTimeMillis() + policy.getDeadlineMs();
+        }
+
+        LoginProbeResult run(List<Integer> protocols, int width) {
+            if (protocols.isEmpty()) {
+                return null;
             }
-            
-            WhitelistCheckResult result = checkByFakeLogin(ip, port, checkUsername, protocol);
-            if (result.status == CheckStatus.SUCCESS) {
-                System.out.println("[WhiteList Check] ✓ RESULT: " + (result.hasWhitelist ? "HAS WHITELIST" : "NO WHITELIST"));
-                return result.hasWhitelist;
+
+            Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+            CompletionService<LoginProbeResult> completion = new ExecutorCompletionService<>(LOGIN_POOL);
+            List<Future<LoginProbeResult>> started = new ArrayList<>();
+            int next = 0;
+            int running = 0;
+
+            try {
+                while (next < protocols.size() || running > 0) {
+                    while (running < width && next < protocols.size() && attempts < policy.getMaxAttempts()
+                            && !isCancelled()) {
+                        if (deadline - System.currentTimeMillis() <= 0) {
+                            if (running == 0) {
+                                System.out.println("[WhiteList Check] Time budget of " + policy.getDeadlineMs()
+                                    + "ms used up");
+                                return null;
+                            }
+                            // The poll below reports it once the running attempts are given up
+                            break;
+                        }
+                        if (running > 0 && !ConnectionManager.shared().hasHeadroom()) {
+                            // Let the attempts already out finish before opening more sockets
+                            break;
+                        }
+                        ConnectionManager.shared().awaitHeadroom();
+                        if (gate != null) {
+                            gate.await();
+                        }
+                        final int protocol = protocols.get(next++);
+                        attempts++;
+                        running++;
+                        started.add(completion.submit(
+                            () -> checkByFakeLogin(ip, port, username, protocol, openSockets, cancellation)));
+                    }
+                    if (running == 0) {
+                        break;
+                    }
+
+                    long remaining = deadline - System.currentTimeMillis();
+                    Future<LoginProbeResult> done = remaining > 0
+                        ? completion.poll(remaining, TimeUnit.MILLISECONDS)
+                        : null;
+                    if (done == null) {
+                        System.out.println("[WhiteList Check] Time budget of " + policy.getDeadlineMs() + "ms used up");
+                        return null;
+                    }
+                    running--;
+
+                    LoginProbeResult result = done.get();
+                    if (result.outcome.isProtocolAccepted() || result.outcome == LoginOutcome.VERSION_MISMATCH) {
+                        ProtocolStats.shared().recordAttempt(versionPattern, result.protocol,
+                            result.outcome.isProtocolAccepted());
+                    }
+                    if (result.outcome.endsSearch()) {
+                        return result;
+                    }
+                }
+                if (attempts >= policy.getMaxAttempts() && !isCancelled()) {
+                    System.out.println("[WhiteList Check] Attempt budget of " + policy.getMaxAttempts() + " used up");
+                }
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                return null;
+            } finally {
+                for (Future<LoginProbeResult> future : started) {
+                    future.cancel(true);
+                }
+                for (Socket socket : openSockets) {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                }
             }
         }
-        
-        System.out.println("[WhiteList Check] All protocols failed or were inconclusive - could not confirm whitelist");
-        return false;
+
+        private boolean isCancelled() {
+            return cancellation != null && cancellation.isCancelled();
+        }
     }
 
     public static String getClientVersionName(String reportedVersion, int protocolVersion) {
@@ -355,158 +600,215 @@ public class MinecraftProtocol {
     private static Integer getProtocolFromVersion(String version) {
         if (version == null || version.isEmpty()) return null;
         
-        // Clean version string (remove "Minecraft ", "Paper ", "Spigot ", etc.)
-        String cleanVersion = version
-            .replaceAll("(?i)(minecraft|paper|spigot|purpur|fabric|forge|bungeecord|waterfall|velocity)\\s*", "")
-            .trim();
-        
-        // Try exact match
-        if (VERSION_MAP.containsKey(cleanVersion)) {
-            return VERSION_MAP.get(cleanVersion);
+        // First "1.x" or "1.x.y" in the name (e.g., "1.20.1" from "Paper 1.20.1", "1.8" from "1.8.x-1.21.x")
+        Matcher matcher = VERSION_NUMBER.matcher(version);
+        if (!matcher.find()) {
+            return null;
         }
         
-        // Try to extract version number (e.g., "1.20.1" from "Paper 1.20.1")
-        String[] parts = cleanVersion.split("\\s+");
-        for (String part : parts) {
-            if (VERSION_MAP.containsKey(part)) {
-                return VERSION_MAP.get(part);
-            }
-        }
-        
-        // Try partial match for versions like "1.20.x"
-        for (Map.Entry<String, Integer> entry : VERSION_MAP.entrySet()) {
-            if (cleanVersion.startsWith(entry.getKey())) {
-                return entry.getValue();
-            }
+        Integer protocol = VERSION_MAP.get(matcher.group());
+        if (protocol == null && matcher.group(2) != null) {
+            protocol = VERSION_MAP.get(matcher.group(1));
         }
-        
-        return null;
+        return protocol;
+    }
+
+    static int[] knownProtocols() {
+        return PROTOCOL_VERSIONS.clone();
     }
     
-    private enum CheckStatus {
-        SUCCESS,
-        PROTOCOL_MISMATCH,
-        INCONCLUSIVE,
-        ERROR
+    /**
+     * Where a single login attempt ended. Outcomes that prove the server got past
+     * the protocol check end the search, and so does a refused connection; only a
+     * version mismatch, a timeout or a broken exchange moves on to the next protocol.
+     */
+    private enum LoginOutcome {
+        ACCEPTED(true),
+        ONLINE_MODE(true),
+        COMPRESSION(true),
+        KICKED(true),
+        VERSION_MISMATCH(false),
+        TIMEOUT(false),
+        REFUSED(false),
+        ERROR(false);
+
+        private final boolean protocolAccepted;
+
+        LoginOutcome(boolean protocolAccepted) {
+            this.protocolAccepted = protocolAccepted;
+        }
+
+        boolean isProtocolAccepted() {
+            return protocolAccepted;
+        }
+
+        boolean endsSearch() {
+            return protocolAccepted || this == REFUSED;
+        }
     }
     
-    private static class WhitelistCheckResult {
-        CheckStatus status;
-        boolean hasWhitelist;
+    private static class LoginProbeResult {
+        final LoginOutcome outcome;
+        final boolean hasWhitelist;
+        final String reason;
+        final int protocol;
         
-        WhitelistCheckResult(CheckStatus status, boolean hasWhitelist) {
-            this.status = status;
+        LoginProbeResult(LoginOutcome outcome, boolean hasWhitelist, String reason, int protocol) {
+            this.outcome = outcome;
             this.hasWhitelist = hasWhitelist;
+            this.reason = reason;
+            this.protocol = protocol;
         }
     }
     
-    private static WhitelistCheckResult checkByFakeLogin(String ip, int port, String username, int protocolVersion) {
+    private static LoginProbeResult checkByFakeLogin(String ip, int port, String username, int protocolVersion,
+                                                     Set<Socket> openSockets, CancellationRegistry cancellation) {
         System.out.println("[WhiteList Check] Attempting login with protocol " + protocolVersion);
         
-        try (Socket socket = new Socket()) {
-            socket.setSoTimeout(3000);
-            socket.connect(new InetSocketAddress(ip, port), 3000);
+        Socket socket = new Socket();
+        openSockets.add(socket);
+        try {
+            ConnectionManager.shared().opened(socket);
+            if (cancellation != null && !cancellation.register(socket)) {
+                return new LoginProbeResult(LoginOutcome.ERROR, false, "Cancelled", protocolVersion);
+            }
+            connectMeasured(socket, ip, port);
             
-            try (DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-                 DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            ByteBuffer packet = PacketCodec.acquire();
+            try (PacketCodec.Reader in = new PacketCodec.Reader(socket.getInputStream())) {
                 
-                // Handshake
-                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                DataOutputStream handshake = new DataOutputStream(buffer);
-                handshake.writeByte(0);
-                writeVarInt(handshake, protocolVersion);
-                writeString(handshake, ip);
-                handshake.writeShort(port);
-                writeVarInt(handshake, 2); // Login state
-                
-                byte[] packet = buffer.toByteArray();
-                writeVarInt(out, packet.length);
-                out.write(packet);
-                out.flush();
+                // Handshake and Login Start go out in a single write
+                PacketCodec.putHandshake(packet, protocolVersion, ip, port, 2); // Login state
                 
                 // Login Start packet format varies by protocol version:
                 // < 759 (before 1.19): Name only
                 // 759-760 (1.19-1.19.2): Name + Player UUID
                 // >= 761 (1.19.3+): Name + Player UUID
-                buffer = new ByteArrayOutputStream();
-                DataOutputStream login = new DataOutputStream(buffer);
-                login.writeByte(0); // Packet ID = 0x00 (Login Start)
+                int start = PacketCodec.beginFrame(packet);
+                PacketCodec.putVarInt(packet, 0x00); // Packet ID = 0x00 (Login Start)
                 
-                writeString(login, username);
+                PacketCodec.putString(packet, username);
                 
                 // Add UUID for 1.19+ (protocol 759+)
                 if (protocolVersion >= 759) {
                     // Player UUID (most significant bits + least significant bits)
                     // Using 0 for both parts (null UUID)
-                    login.writeLong(0L);  // Most significant bits
-                    login.writeLong(0L);  // Least significant bits
+                    packet.putLong(0L);  // Most significant bits
+                    packet.putLong(0L);  // Least significant bits
                 }
                 
-                packet = buffer.toByteArray();
-                writeVarInt(out, packet.length);
-                out.write(packet);
-                out.flush();
+                PacketCodec.endFrame(packet, start);
+                PacketCodec.writeTo(socket.getOutputStream(), packet);
                 
                 // Read response
-                socket.setSoTimeout(2000);
+                socket.setSoTimeout(RttEstimator.shared().readTimeoutMs(ip, LOGIN_READ_TIMEOUT));
                 
                 try {
-                    int length = readVarInt(in);
-                    if (length <= 0 || length > 32767) {
-                        System.out.println("[WhiteList Check] Invalid packet length: " + length);
-                        return new WhitelistCheckResult(CheckStatus.ERROR, false);
-                    }
-                    
-                    int packetId = readVarInt(in);
-                    System.out.println("[WhiteList Check] Packet ID: 0x" + String.format("%02X", packetId) + 
-                                     " | Protocol: " + protocolVersion);
-                    
-                    if (packetId == 0x00) { // Disconnect
-                        int msgLength = readVarInt(in);
-                        if (msgLength > 0 && msgLength < 32768) {
-                            byte[] msgBytes = new byte[msgLength];
-                            in.readFully(msgBytes);
-                            String message = new String(msgBytes, StandardCharsets.UTF_8);
+                    // Proxies often negotiate compression or ask a plugin channel first; the answer follows
+                    for (int packets = 0; packets < MAX_LOGIN_PACKETS; packets++) {
+                        ByteBuffer frame = in.readFrame(32767);
+                        int packetId = PacketCodec.getVarInt(frame);
+                        System.out.println("[WhiteList Check] Packet ID: 0x" + String.format("%02X", packetId) + 
+                                         " | Protocol: " + protocolVersion);
+                        
+                        if (packetId == 0x00) { // Disconnect
+                            int msgLength = PacketCodec.getVarInt(frame);
+                            if (msgLength > 0 && msgLength < 32768 && msgLength <= frame.remaining()) {
+                                String message = new String(frame.array(), frame.arrayOffset() + frame.position(),
+                                    msgLength, StandardCharsets.UTF_8);
+                                
+                                System.out.println("[WhiteList Check] Message: " + message);
+                                
+                                // Check for version mismatch
+                                if (isVersionMismatch(message)) {
+                                    System.out.println("[WhiteList Check] → Version mismatch");
+                                    return new LoginProbeResult(LoginOutcome.VERSION_MISMATCH, false, message, protocolVersion);
+                                }
+                                
+                                // Check for whitelist
+                                boolean hasWhitelist = analyzeDisconnectMessage(message);
+                                return new LoginProbeResult(LoginOutcome.KICKED, hasWhitelist, message, protocolVersion);
+                            }
+                            break;
+                            
+                        } else if (packetId == 0x01) { // Encryption Request
+                            System.out.println("[WhiteList Check] → Encryption request = online-mode server");
+                            return new LoginProbeResult(LoginOutcome.ONLINE_MODE, false, "", protocolVersion);
                             
-                            System.out.println("[WhiteList Check] Message: " + message);
+                        } else if (packetId == 0x02) { // Login Success
+                            System.out.println("[WhiteList Check] → Login success = NO whitelist");
+                            return new LoginProbeResult(LoginOutcome.ACCEPTED, false, "", protocolVersion);
                             
-                            // Check for version mismatch
-                            if (isVersionMismatch(message)) {
-                                System.out.println("[WhiteList Check] → Version mismatch");
-                                return new WhitelistCheckResult(CheckStatus.PROTOCOL_MISMATCH, false);
+                        } else if (packetId == 0x03) { // Set Compression
+                            int threshold = PacketCodec.getVarInt(frame);
+                            System.out.println("[WhiteList Check] → Compression threshold " + threshold + ", reading on");
+                            in.setCompressionThreshold(threshold);
+                            
+                        } else if (packetId == 0x04) { // Login Plugin Request
+                            int messageId = PacketCodec.getVarInt(frame);
+                            System.out.println("[WhiteList Check] → Plugin request, answering not understood");
+                            
+                            start = PacketCodec.beginFrame(packet);
+                            if (in.isCompressed()) {
+                                PacketCodec.putVarInt(packet, 0); // Data length 0 = sent uncompressed
                             }
+                            PacketCodec.putVarInt(packet, 0x02); // Login Plugin Response
+                            PacketCodec.putVarInt(packet, messageId);
+                            packet.put((byte) 0); // Not understood
+                            PacketCodec.endFrame(packet, start);
+                            PacketCodec.writeTo(socket.getOutputStream(), packet);
                             
-                            // Check for whitelist
-                            boolean hasWhitelist = analyzeDisconnectMessage(message);
-                            return new WhitelistCheckResult(CheckStatus.SUCCESS, hasWhitelist);
+                        } else {
+                            break;
                         }
-                        
-                    } else if (packetId == 0x01) { // Encryption Request
-                        System.out.println("[WhiteList Check] -> Encryption request = inconclusive");
-                        return new WhitelistCheckResult(CheckStatus.INCONCLUSIVE, false);
-                        
-                    } else if (packetId == 0x02) { // Login Success
-                        System.out.println("[WhiteList Check] → Login success = NO whitelist");
-                        return new WhitelistCheckResult(CheckStatus.SUCCESS, false);
-                        
-                    } else if (packetId == 0x03) { // Set Compression
-                        System.out.println("[WhiteList Check] -> Compression = inconclusive");
-                        return new WhitelistCheckResult(CheckStatus.INCONCLUSIVE, false);
                     }
                     
+                } catch (SocketTimeoutException e) {
+                    System.out.println("[WhiteList Check] Read timed out");
+                    if (in.isCompressed()) {
+                        return new LoginProbeResult(LoginOutcome.COMPRESSION, false, "", protocolVersion);
+                    }
+                    return new LoginProbeResult(LoginOutcome.TIMEOUT, false, "", protocolVersion);
                 } catch (IOException e) {
                     System.out.println("[WhiteList Check] Read error: " + e.getMessage());
-                    return new WhitelistCheckResult(CheckStatus.ERROR, false);
+                    if (in.isCompressed()) {
+                        return new LoginProbeResult(LoginOutcome.COMPRESSION, false, "", protocolVersion);
+                    }
+                    return new LoginProbeResult(LoginOutcome.ERROR, false, "", protocolVersion);
                 }
                 
+                if (in.isCompressed()) {
+                    // Set Compression is only sent once the protocol check has passed
+                    return new LoginProbeResult(LoginOutcome.COMPRESSION, false, "", protocolVersion);
+                }
+                
+            } finally {
+                PacketCodec.release(packet);
             }
             
+        } catch (SocketTimeoutException e) {
+            System.out.println("[WhiteList Check] Connect timed out");
+            return new LoginProbeResult(LoginOutcome.TIMEOUT, false, "", protocolVersion);
+        } catch (ConnectException e) {
+            System.out.println("[WhiteList Check] Connection error: " + e.getMessage());
+            boolean refused = e.getMessage() == null || e.getMessage().toLowerCase().contains("refused");
+            return new LoginProbeResult(refused ? LoginOutcome.REFUSED : LoginOutcome.ERROR, false, "", protocolVersion);
         } catch (Exception e) {
+            if (ConnectionManager.isExhaustion(e)) {
+                // This machine ran out of sockets; the server told us nothing
+                ConnectionManager.shared().exhausted();
+            }
             System.out.println("[WhiteList Check] Connection error: " + e.getMessage());
-            return new WhitelistCheckResult(CheckStatus.ERROR, false);
+            return new LoginProbeResult(LoginOutcome.ERROR, false, "", protocolVersion);
+        } finally {
+            openSockets.remove(socket);
+            if (cancellation != null) {
+                cancellation.unregister(socket);
+            }
+            closeCounted(socket);
         }
         
-        return new WhitelistCheckResult(CheckStatus.ERROR, false);
+        return new LoginProbeResult(LoginOutcome.ERROR, false, "", protocolVersion);
     }
     
     private static boolean isVersionMismatch(String message) {
@@ -608,13 +910,6 @@ public class MinecraftProtocol {
         return false;
     }
 
-
-    private static void writeString(DataOutputStream out, String string) throws IOException {
-        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
-        writeVarInt(out, bytes.length);
-        out.write(bytes);
-    }
-
     private static String repeat(String text, int count) {
         StringBuilder builder = new StringBuilder(text.length() * count);
         for (int i = 0; i < count; i++) {
@@ -622,30 +917,4 @@ public class MinecraftProtocol {
         }
         return builder.toString();
     }
-    
-    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
-        while ((value & 0xFFFFFF80) != 0) {
-            out.writeByte((value & 0x7F) | 0x80);
-            value >>>= 7;
-        }
-        out.writeByte(value & 0x7F);
-    }
-    
-    private static int readVarInt(DataInputStream in) throws IOException {
-        int value = 0;
-        int position = 0;
-        byte currentByte;
-        
-        do {
-            currentByte = in.readByte();
-            value |= (currentByte & 0x7F) << position;
-            position += 7;
-            
-            if (position >= 32) {
-                throw new IOException("VarInt too big");
-            }
-        } while ((currentByte & 0x80) != 0);
-        
-        return value;
-    }
 }
@@ -2,6 +2,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,14 +22,24 @@ public class MinecraftScreenshotService {
     private final String nodeExecutable;
     private final int waitMs;
     private final int timeoutMs;
+    private final CancellationRegistry cancellation;
 
     public MinecraftScreenshotService(File projectDir, File outputDir, int waitMs) {
+        this(projectDir, outputDir, waitMs, null);
+    }
+
+    /**
+     * @param cancellation where capture processes are registered so a cancelled scan
+     *                     stops them at once; may be null
+     */
+    public MinecraftScreenshotService(File projectDir, File outputDir, int waitMs, CancellationRegistry cancellation) {
         this.projectDir = projectDir;
         this.scriptFile = new File(projectDir, "tools/screenshot-bot/capture.js");
         this.outputDir = outputDir;
         this.nodeExecutable = findNodeExecutable(projectDir);
         this.waitMs = waitMs;
         this.timeoutMs = Math.max(12000, waitMs + 12000);
+        this.cancellation = cancellation;
     }
 
     public String capture(ServerInfo serverInfo, String username) {
@@ -58,6 +69,14 @@ public class MinecraftScreenshotService {
             command.add(serverInfo.getIp());
             command.add("--port");
             command.add(String.valueOf(serverInfo.getPort()));
+            // The bot connects where the scan already resolved to; --host stays in its handshake
+            InetSocketAddress endpoint = HostResolver.shared().endpoint(serverInfo.getIp(), serverInfo.getPort());
+            if (!endpoint.isUnresolved()) {
+                command.add("--connect-host");
+                command.add(endpoint.getAddress().getHostAddress());
+                command.add("--connect-port");
+                command.add(String.valueOf(endpoint.getPort()));
+            }
             command.add("--username");
             command.add(username);
             command.add("--out");
@@ -79,30 +98,44 @@ public class MinecraftScreenshotService {
             builder.redirectErrorStream(true);
 
             Process process = builder.start();
-            ExecutorService outputReader = Executors.newSingleThreadExecutor();
-            Future<String> outputFuture = outputReader.submit(() -> readProcessOutput(process));
-
-            boolean finished = process.waitFor(timeoutMs + 5000L, TimeUnit.MILLISECONDS);
-            if (!finished) {
-                process.destroyForcibly();
-                outputReader.shutdownNow();
-                System.err.println("[Screenshot] Timed out for " + serverInfo.getIp() + ":" + serverInfo.getPort());
+            if (cancellation != null && !cancellation.register(process)) {
                 deletePartial(outputFile);
                 return "";
             }
+            ExecutorService outputReader = Executors.newSingleThreadExecutor();
+            try {
+                Future<String> outputFuture = outputReader.submit(() -> readProcessOutput(process));
+
+                boolean finished = process.waitFor(timeoutMs + 5000L, TimeUnit.MILLISECONDS);
+                if (!finished) {
+                    process.destroyForcibly();
+                    System.err.println("[Screenshot] Timed out for " + serverInfo.getIp() + ":" + serverInfo.getPort());
+                    deletePartial(outputFile);
+                    return "";
+                }
 
-            String output = outputFuture.get(2, TimeUnit.SECONDS);
-            outputReader.shutdownNow();
+                String output = outputFuture.get(2, TimeUnit.SECONDS);
+                if (process.exitValue() == 0 && outputFile.isFile()) {
+                    return outputFile.getAbsolutePath();
+                }
+                if (isCancelled()) {
+                    deletePartial(outputFile);
+                    return "";
+                }
 
-            if (process.exitValue() == 0 && outputFile.isFile()) {
-                return outputFile.getAbsolutePath();
+                System.err.println("[Screenshot] Failed for " + serverInfo.getIp() + ":" + serverInfo.getPort() + ": " + output);
+                deletePartial(outputFile);
+                return "";
+            } finally {
+                outputReader.shutdownNow();
+                if (cancellation != null) {
+                    cancellation.unregister(process);
+                }
             }
-
-            System.err.println("[Screenshot] Failed for " + serverInfo.getIp() + ":" + serverInfo.getPort() + ": " + output);
-            deletePartial(outputFile);
-            return "";
         } catch (Exception e) {
-            System.err.println("[Screenshot] Failed for " + serverInfo.getIp() + ":" + serverInfo.getPort() + ": " + e.getMessage());
+            if (!isCancelled()) {
+                System.err.println("[Screenshot] Failed for " + serverInfo.getIp() + ":" + serverInfo.getPort() + ": " + e.getMessage());
+            }
             deletePartial(outputFile);
             return "";
         } finally {
@@ -112,6 +145,10 @@ public class MinecraftScreenshotService {
         }
     }
 
+    private boolean isCancelled() {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
     private static String readProcessOutput(Process process) throws IOException {
         StringBuilder output = new StringBuilder();
         try (BufferedReader reader = new BufferedReader(
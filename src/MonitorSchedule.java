@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * When each known server is checked next between full sweeps. Servers that were
+ * online are hot and get a status-only poll every interval. Servers that stopped
+ * answering move to a negative cache: they are polled at a slower cold cadence and
+ * forgotten after a TTL. Every other port is only looked at by the full sweep,
+ * which runs on the slowest cadence of all and starts the schedule over.
+ */
+public class MonitorSchedule {
+    public enum Tier { HOT, COLD }
+
+    private static final int COLD_FACTOR = 4;
+    private static final int NEGATIVE_TTL_FACTOR = 6;
+    private static final int FULL_SWEEP_FACTOR = 12;
+    // Entries due this close together go out in one poll instead of several small ones
+    private static final int COALESCE_SHARE = 10;
+
+    private final long hotIntervalMs;
+    private final long coldIntervalMs;
+    private final long negativeTtlMs;
+    private final long fullSweepIntervalMs;
+    private final PriorityQueue<Entry> due;
+    private long nextFullSweepAt;
+
+    /**
+     * @param intervalMs the monitoring interval, used as the hot cadence; the other
+     *                   cadences are multiples of it
+     */
+    public MonitorSchedule(long intervalMs) {
+        if (intervalMs < 1) {
+            throw new IllegalArgumentException("Monitoring interval must be positive");
+        }
+        this.hotIntervalMs = intervalMs;
+        this.coldIntervalMs = intervalMs * COLD_FACTOR;
+        this.negativeTtlMs = intervalMs * NEGATIVE_TTL_FACTOR;
+        this.fullSweepIntervalMs = intervalMs * FULL_SWEEP_FACTOR;
+        this.due = new PriorityQueue<>((a, b) -> Long.compare(a.dueAt, b.dueAt));
+        // Nothing is known before the first sweep, so it is due right away
+        this.nextFullSweepAt = 0;
+    }
+
+    public boolean isFullSweepDue(long now) {
+        return now >= nextFullSweepAt - hotIntervalMs / COALESCE_SHARE;
+    }
+
+    /**
+     * Starts the schedule over from a full sweep: what it found online is hot, and
+     * the negative cache is dropped since the sweep has just looked at every port.
+     */
+    public void fullSweepDone(Collection<ServerInfo> online, long now) {
+        due.clear();
+        for (ServerInfo info : online) {
+            due.add(new Entry(info, Tier.HOT, now + hotIntervalMs, now));
+        }
+        nextFullSweepAt = now + fullSweepIntervalMs;
+    }
+
+    /**
+     * When the next poll or full sweep is due.
+     */
+    public long nextDueAt() {
+        Entry head = due.peek();
+        return head != null ? Math.min(head.dueAt, nextFullSweepAt) : nextFullSweepAt;
+    }
+
+    /**
+     * Removes and returns the entries due by {@code now}, plus those due shortly after.
+     * Each one goes back through {@link #polled}.
+     */
+    public List<Entry> takeDue(long now) {
+        List<Entry> taken = new ArrayList<>();
+        long until = now + hotIntervalMs / COALESCE_SHARE;
+        while (!due.isEmpty() && due.peek().dueAt <= until) {
+            taken.add(due.poll());
+        }
+        return taken;
+    }
+
+    /**
+     * Reschedules an entry after its poll.
+     *
+     * @param current the poll's result, or null if the server did not answer
+     * @return false when the entry left the schedule because its negative cache expired
+     */
+    public boolean polled(Entry entry, ServerInfo current, long now) {
+        if (current != null && current.isOnline()) {
+            due.add(new Entry(current, Tier.HOT, now + hotIntervalMs, now));
+            return true;
+        }
+        if (now - entry.lastOnlineAt >= negativeTtlMs) {
+            return false;
+        }
+        due.add(new Entry(entry.last, Tier.COLD, now + coldIntervalMs, entry.lastOnlineAt));
+        return true;
+    }
+
+    public int size() {
+        return due.size();
+    }
+
+    public int count(Tier tier) {
+        int count = 0;
+        for (Entry entry : due) {
+            if (entry.tier == tier) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static final class Entry {
+        private final ServerInfo last;
+        private final Tier tier;
+        private final long dueAt;
+        private final long lastOnlineAt;
+
+        Entry(ServerInfo last, Tier tier, long dueAt, long lastOnlineAt) {
+            this.last = last;
+            this.tier = tier;
+            this.dueAt = dueAt;
+            this.lastOnlineAt = lastOnlineAt;
+        }
+
+        /**
+         * The server as it was last seen online.
+         */
+        public ServerInfo getLast() { return last; }
+        public Tier getTier() { return tier; }
+        public long getDueAt() { return dueAt; }
+    }
+}
@@ -0,0 +1,499 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives handshake -> status -> ping exchanges for many endpoints at once
+ * from a few selector threads instead of parking one thread per socket.
+ * Plain connect probes for the port sweep share the same loops.
+ */
+public class NioProbeEngine implements Closeable {
+    private static final long SELECT_TIMEOUT_MS = 50;
+    private static final long EXPIRY_SWEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long EXHAUSTED_RETRY_MS = 100;
+    // A machine that stays out of sockets this long will not recover on its own
+    private static final long EXHAUSTED_GIVE_UP_MS = 30000;
+
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop;
+    private volatile boolean closed;
+
+    public NioProbeEngine(int loopCount) throws IOException {
+        int count = Math.max(1, loopCount);
+        this.loops = new EventLoop[count];
+        this.nextLoop = new AtomicInteger();
+        try {
+            for (int i = 0; i < count; i++) {
+                loops[i] = new EventLoop(i);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    public static int defaultLoopCount() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public CompletableFuture<MinecraftProtocol.StatusResponse> probeStatus(String host, int port) {
+        CompletableFuture<MinecraftProtocol.StatusResponse> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IOException("Probe engine is closed"));
+            return future;
+        }
+
+        InetSocketAddress address = HostResolver.shared().endpoint(host, port);
+        if (address.isUnresolved()) {
+            future.completeExceptionally(new UnknownHostException(host));
+            return future;
+        }
+
+        Probe probe = new Probe(address, host, MinecraftProtocol.encodeStatusRequest(host, port), future, null);
+        loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].enqueue(probe);
+        return future;
+    }
+
+    /**
+     * Opens a TCP connection and closes it as soon as the handshake completes.
+     * Never completes exceptionally; failures are reported as a {@link ConnectResult}.
+     */
+    public CompletableFuture<ConnectResult> probeConnect(String host, int port) {
+        InetSocketAddress address = HostResolver.shared().endpoint(host, port);
+        if (address.isUnresolved()) {
+            return CompletableFuture.completedFuture(new ConnectResult(ConnectOutcome.ERROR, -1));
+        }
+        return probeConnect(address, host);
+    }
+
+    public CompletableFuture<ConnectResult> probeConnect(InetAddress address, int port, String host) {
+        return probeConnect(new InetSocketAddress(address, port), host);
+    }
+
+    /**
+     * @param host the host as the target source names it, which keys its round-trip
+     *             estimate the same way the blocking protocol code does
+     */
+    public CompletableFuture<ConnectResult> probeConnect(InetSocketAddress address, String host) {
+        CompletableFuture<ConnectResult> future = new CompletableFuture<>();
+        if (closed) {
+            future.complete(new ConnectResult(ConnectOutcome.ERROR, -1));
+            return future;
+        }
+
+        Probe probe = new Probe(address, host, null, null, future);
+        loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].enqueue(probe);
+        return future;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    public enum ConnectOutcome {
+        OPEN,
+        REFUSED,
+        TIMEOUT,
+        ERROR
+    }
+
+    public static class ConnectResult {
+        private final ConnectOutcome outcome;
+        private final long connectMillis;
+
+        ConnectResult(ConnectOutcome outcome, long connectMillis) {
+            this.outcome = outcome;
+            this.connectMillis = connectMillis;
+        }
+
+        public ConnectOutcome getOutcome() { return outcome; }
+        public boolean isOpen() { return outcome == ConnectOutcome.OPEN; }
+        public long getConnectMillis() { return connectMillis; }
+    }
+
+    private enum ProbeState {
+        CONNECTING,
+        SEND_STATUS,
+        READ_STATUS,
+        SEND_PING,
+        READ_PONG
+    }
+
+    private static final class Probe {
+        private final InetSocketAddress address;
+        // Key for RttEstimator: the host as given, not the resolved or SRV target
+        private final String host;
+        private final byte[] request;
+        private final CompletableFuture<MinecraftProtocol.StatusResponse> future;
+        private final CompletableFuture<ConnectResult> connectFuture;
+        private SocketChannel channel;
+        private SelectionKey key;
+        private boolean established;
+        private long exhaustedSince;
+        private long retryAt;
+        private ProbeState state;
+        private long startedAt;
+        private long deadline;
+        private ByteBuffer out;
+        private ByteBuffer in;
+        private byte[] json;
+
+        Probe(InetSocketAddress address, String host, byte[] request,
+              CompletableFuture<MinecraftProtocol.StatusResponse> future,
+              CompletableFuture<ConnectResult> connectFuture) {
+            this.address = address;
+            this.host = host;
+            this.request = request;
+            this.future = future;
+            this.connectFuture = connectFuture;
+        }
+
+        boolean isDone() {
+            return future != null ? future.isDone() : connectFuture.isDone();
+        }
+    }
+
+    private final class EventLoop extends Thread {
+        private final Selector selector;
+        private final Queue<Probe> pending;
+        // Probes that found the machine out of sockets, waiting to try again; loop thread only
+        private final Queue<Probe> deferred;
+
+        EventLoop(int index) throws IOException {
+            super("NioProbeLoop-" + index);
+            setDaemon(true);
+            this.selector = Selector.open();
+            this.pending = new ConcurrentLinkedQueue<>();
+            this.deferred = new ArrayDeque<>();
+        }
+
+        void enqueue(Probe probe) {
+            pending.add(probe);
+            selector.wakeup();
+            if (closed) {
+                // deferred belongs to the loop thread, which empties it in shutdown()
+                failPending();
+            }
+        }
+
+        @Override
+        public void run() {
+            long nextExpiry = System.nanoTime();
+            try {
+                while (!closed) {
+                    selector.select(SELECT_TIMEOUT_MS);
+                    requeueDeferred();
+                    registerPending();
+
+                    Set<SelectionKey> selected = selector.selectedKeys();
+                    for (SelectionKey key : selected) {
+                        handle(key);
+                    }
+                    selected.clear();
+
+                    long now = System.nanoTime();
+                    if (now - nextExpiry >= 0) {
+                        expire(now);
+                        nextExpiry = now + EXPIRY_SWEEP_NANOS;
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                System.err.println("[Probe] Event loop stopped: " + e.getMessage());
+            } finally {
+                shutdown();
+            }
+        }
+
+        private void registerPending() {
+            Probe probe;
+            // Short of sockets, the rest stay queued; their timeouts start only once they are opened
+            while (ConnectionManager.shared().hasHeadroom() && (probe = pending.poll()) != null) {
+                try {
+                    SocketChannel channel = SocketChannel.open();
+                    probe.channel = channel;
+                    ConnectionManager.shared().opened(channel);
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    probe.startedAt = System.currentTimeMillis();
+                    probe.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                        RttEstimator.shared().connectTimeoutMs(probe.host));
+                    probe.state = ProbeState.CONNECTING;
+                    boolean connected = channel.connect(probe.address);
+                    probe.key = channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, probe);
+                    if (connected) {
+                        onConnected(probe);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (ConnectionManager.isExhaustion(e)) {
+                        defer(probe, e);
+                    } else {
+                        fail(probe, e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Out of descriptors or local ports says nothing about the target, so the probe
+         * waits and tries again instead of failing as if the port were closed.
+         */
+        private void defer(Probe probe, Throwable error) {
+            closeQuietly(probe);
+            ConnectionManager.shared().exhausted();
+            long now = System.currentTimeMillis();
+            if (probe.exhaustedSince == 0) {
+                probe.exhaustedSince = now;
+            } else if (now - probe.exhaustedSince >= EXHAUSTED_GIVE_UP_MS) {
+                fail(probe, error);
+                return;
+            }
+            probe.retryAt = now + EXHAUSTED_RETRY_MS;
+            deferred.add(probe);
+        }
+
+        private void requeueDeferred() {
+            long now = System.currentTimeMillis();
+            // Deferred in order, so the head is always the first one due
+            while (!deferred.isEmpty() && deferred.peek().retryAt <= now) {
+                pending.add(deferred.poll());
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            Probe probe = (Probe) key.attachment();
+            try {
+                if (!key.isValid()) {
+                    return;
+                }
+                if (key.isConnectable()) {
+                    if (probe.channel.finishConnect()) {
+                        onConnected(probe);
+                    }
+                    return;
+                }
+                if (key.isWritable()) {
+                    write(probe);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read(probe);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(probe, e);
+            }
+        }
+
+        private void onConnected(Probe probe) throws IOException {
+            probe.established = true;
+            long elapsed = System.currentTimeMillis() - probe.startedAt;
+            RttEstimator.shared().sample(probe.host, elapsed);
+            if (probe.connectFuture != null) {
+                closeQuietly(probe);
+                probe.connectFuture.complete(new ConnectResult(ConnectOutcome.OPEN, elapsed));
+                return;
+            }
+            probe.state = ProbeState.SEND_STATUS;
+            probe.out = ByteBuffer.wrap(probe.request);
+            probe.in = PacketCodec.acquire();
+            refreshReadDeadline(probe);
+            probe.key.interestOps(SelectionKey.OP_WRITE);
+            write(probe);
+        }
+
+        private void write(Probe probe) throws IOException {
+            probe.channel.write(probe.out);
+            if (probe.out.hasRemaining()) {
+                return;
+            }
+            probe.state = probe.state == ProbeState.SEND_STATUS ? ProbeState.READ_STATUS : ProbeState.READ_PONG;
+            refreshReadDeadline(probe);
+            probe.key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void read(Probe probe) throws IOException {
+            int read = probe.channel.read(probe.in);
+            if (read < 0) {
+                throw new EOFException("Connection closed by server");
+            }
+            if (read == 0) {
+                return;
+            }
+            refreshReadDeadline(probe);
+
+            probe.in.flip();
+            ByteBuffer frame = nextFrame(probe);
+            if (frame == null) {
+                probe.in.compact();
+                return;
+            }
+
+            if (probe.state == ProbeState.READ_STATUS) {
+                probe.json = decodeStatus(frame);
+                probe.in.compact();
+                probe.state = ProbeState.SEND_PING;
+                probe.out = PacketCodec.acquire();
+                PacketCodec.putPing(probe.out, System.currentTimeMillis());
+                probe.out.flip();
+                probe.key.interestOps(SelectionKey.OP_WRITE);
+                write(probe);
+            } else if (probe.state == ProbeState.READ_PONG) {
+                if (frame.remaining() < 9) {
+                    throw new IOException("Invalid pong packet");
+                }
+                long ping = System.currentTimeMillis() - probe.startedAt;
+                closeQuietly(probe);
+                probe.future.complete(new MinecraftProtocol.StatusResponse(probe.json, ping));
+            }
+        }
+
+        private ByteBuffer nextFrame(Probe probe) throws IOException {
+            ByteBuffer in = probe.in;
+            int start = in.position();
+            int length = PacketCodec.tryGetFrameLength(in, MinecraftProtocol.MAX_STATUS_FRAME);
+            if (length < 0) {
+                in.position(start);
+                return null;
+            }
+            if (in.remaining() < length) {
+                int needed = (in.position() - start) + length;
+                in.position(start);
+                if (needed > in.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(needed);
+                    larger.put(in);
+                    larger.flip();
+                    PacketCodec.release(in);
+                    probe.in = larger;
+                }
+                return null;
+            }
+
+            ByteBuffer frame = in.slice();
+            frame.limit(length);
+            in.position(in.position() + length);
+            return frame;
+        }
+
+        private void refreshReadDeadline(Probe probe) {
+            probe.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                RttEstimator.shared().readTimeoutMs(probe.host, MinecraftProtocol.READ_TIMEOUT));
+        }
+
+        private void expire(long now) {
+            for (SelectionKey key : selector.keys()) {
+                Probe probe = (Probe) key.attachment();
+                if (probe != null && !probe.isDone() && now - probe.deadline >= 0) {
+                    fail(probe, new SocketTimeoutException(probe.state == ProbeState.CONNECTING
+                        ? "Connect timed out" : "Read timed out"));
+                }
+            }
+        }
+
+        private void failPending() {
+            Probe probe;
+            while ((probe = pending.poll()) != null) {
+                fail(probe, new IOException("Probe engine is closed"));
+            }
+        }
+
+        private void shutdown() {
+            failPending();
+            Probe waiting;
+            while ((waiting = deferred.poll()) != null) {
+                fail(waiting, new IOException("Probe engine is closed"));
+            }
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    Probe probe = (Probe) key.attachment();
+                    if (probe != null) {
+                        fail(probe, new IOException("Probe engine is closed"));
+                    }
+                }
+            } catch (ClosedSelectorException ignored) {
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static byte[] decodeStatus(ByteBuffer frame) throws IOException {
+        int packetId = PacketCodec.getVarInt(frame);
+        if (packetId != 0) {
+            throw new IOException("Invalid packet ID: " + packetId);
+        }
+        return PacketCodec.getStringBytes(frame, 32767);
+    }
+
+    private static void fail(Probe probe, Throwable error) {
+        closeQuietly(probe);
+        ConnectOutcome outcome = classify(error);
+        if (outcome == ConnectOutcome.REFUSED && probe.state == ProbeState.CONNECTING) {
+            // The reset came back after one round trip, as good a sample as an accept
+            RttEstimator.shared().sample(probe.host, System.currentTimeMillis() - probe.startedAt);
+        }
+        if (probe.connectFuture != null) {
+            probe.connectFuture.complete(new ConnectResult(outcome, -1));
+        } else {
+            probe.future.completeExceptionally(error);
+        }
+    }
+
+    private static ConnectOutcome classify(Throwable error) {
+        if (error instanceof SocketTimeoutException) {
+            return ConnectOutcome.TIMEOUT;
+        }
+        if (error instanceof ConnectException) {
+            String message = error.getMessage();
+            if (message == null || message.toLowerCase().contains("refused")) {
+                return ConnectOutcome.REFUSED;
+            }
+        }
+        return ConnectOutcome.ERROR;
+    }
+
+    private static void closeQuietly(Probe probe) {
+        PacketCodec.release(probe.out);
+        PacketCodec.release(probe.in);
+        probe.out = null;
+        probe.in = null;
+        if (probe.key != null) {
+            probe.key.cancel();
+            probe.key = null;
+        }
+        if (probe.channel != null) {
+            try {
+                probe.channel.close();
+            } catch (IOException ignored) {
+            }
+            probe.channel = null;
+            ConnectionManager.shared().closed(probe.established);
+        }
+    }
+}
@@ -0,0 +1,427 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Length-prefixed Minecraft frame encoding and decoding on pooled heap buffers.
+ * Outgoing packets are assembled in one buffer and written with a single call;
+ * incoming frames are sliced out of bulk reads.
+ */
+public class PacketCodec {
+    public static final int BUFFER_SIZE = 8192;
+    public static final int MAX_FRAME_LENGTH = 2097151;
+
+    private static final int FRAME_PREFIX = 3;
+    // Outside the unsigned 32-bit range decodeVarInt returns, so no value can be mistaken for it
+    private static final long INCOMPLETE = -1;
+    private static final int POOL_LIMIT = 512;
+    private static final int HANDSHAKE_CACHE_LIMIT = 4096;
+
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+    private static final Map<HandshakeKey, byte[]> HANDSHAKE_PREFIXES = new ConcurrentHashMap<>();
+    // Pooled rather than per thread: login probes may each run on their own virtual thread
+    private static final Queue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+    private static final int INFLATER_LIMIT = 64;
+    private static final AtomicInteger INFLATER_COUNT = new AtomicInteger();
+
+    private PacketCodec() {
+    }
+
+    public static ByteBuffer acquire() {
+        ByteBuffer buffer = POOL.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        POOL_SIZE.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != BUFFER_SIZE || !buffer.hasArray()) {
+            return;
+        }
+        if (POOL_SIZE.incrementAndGet() > POOL_LIMIT) {
+            POOL_SIZE.decrementAndGet();
+            return;
+        }
+        POOL.add(buffer);
+    }
+
+    /**
+     * Reserves room for the length prefix at the current position and returns the frame start.
+     */
+    public static int beginFrame(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + FRAME_PREFIX);
+        return start;
+    }
+
+    /**
+     * Writes the length prefix for a frame opened by {@link #beginFrame} and
+     * moves the body down when the prefix is shorter than the reserved room.
+     */
+    public static void endFrame(ByteBuffer buffer, int start) {
+        int bodyStart = start + FRAME_PREFIX;
+        int bodyLength = buffer.position() - bodyStart;
+        int prefix = varIntSize(bodyLength);
+
+        buffer.position(start);
+        putVarInt(buffer, bodyLength);
+        if (prefix < FRAME_PREFIX) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset();
+            System.arraycopy(array, offset + bodyStart, array, offset + start + prefix, bodyLength);
+        }
+        buffer.position(start + prefix + bodyLength);
+    }
+
+    /**
+     * Appends a complete handshake frame. The packet id, protocol and host part is
+     * encoded once per protocol/host pair and copied afterwards.
+     */
+    public static void putHandshake(ByteBuffer buffer, int protocolVersion, String host, int port, int nextState) {
+        int start = beginFrame(buffer);
+        buffer.put(handshakePrefix(protocolVersion, host));
+        buffer.putShort((short) port);
+        putVarInt(buffer, nextState);
+        endFrame(buffer, start);
+    }
+
+    public static byte[] encodeStatusRequest(int protocolVersion, String host, int port) {
+        ByteBuffer buffer = acquire();
+        try {
+            putHandshake(buffer, protocolVersion, host, port, 1);
+            int start = beginFrame(buffer);
+            putVarInt(buffer, 0x00);
+            endFrame(buffer, start);
+
+            byte[] request = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(request);
+            return request;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    public static void putPing(ByteBuffer buffer, long payload) {
+        int start = beginFrame(buffer);
+        putVarInt(buffer, 0x01);
+        buffer.putLong(payload);
+        endFrame(buffer, start);
+    }
+
+    /**
+     * Flips the buffer and sends everything written so far in one call.
+     */
+    public static void writeTo(OutputStream out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        out.flush();
+        buffer.clear();
+    }
+
+    public static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & 0xFFFFFF80) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) (value & 0x7F));
+    }
+
+    public static int varIntSize(int value) {
+        int size = 1;
+        while ((value & 0xFFFFFF80) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    public static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a VarInt from a complete frame.
+     */
+    public static int getVarInt(ByteBuffer buffer) throws IOException {
+        long value = decodeVarInt(buffer);
+        if (value == INCOMPLETE) {
+            throw new EOFException("Truncated VarInt");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a VarInt, or returns -1 when the buffer ends before the value does.
+     */
+    public static int tryGetVarInt(ByteBuffer buffer) throws IOException {
+        return (int) decodeVarInt(buffer);
+    }
+
+    /**
+     * Reads a frame's length prefix, or returns -1 when the buffer ends before it
+     * does. A complete prefix outside 1..maxLength is rejected at once, so a bad
+     * length never reads as "wait for more data".
+     */
+    public static int tryGetFrameLength(ByteBuffer buffer, int maxLength) throws IOException {
+        long value = decodeVarInt(buffer);
+        if (value == INCOMPLETE) {
+            return -1;
+        }
+        int length = (int) value;
+        if (length <= 0 || length > Math.min(maxLength, MAX_FRAME_LENGTH)) {
+            throw new IOException("Invalid packet length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * A VarInt as an unsigned 32-bit value, or {@link #INCOMPLETE}.
+     */
+    private static long decodeVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        int position = 0;
+        while (buffer.hasRemaining()) {
+            byte currentByte = buffer.get();
+            value |= (currentByte & 0x7F) << position;
+            if ((currentByte & 0x80) == 0) {
+                return value & 0xFFFFFFFFL;
+            }
+            position += 7;
+            if (position >= 32) {
+                throw new IOException("VarInt too big");
+            }
+        }
+        return INCOMPLETE;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string, rejecting lengths outside 1..maxBytes.
+     */
+    public static String getString(ByteBuffer buffer, int maxBytes) throws IOException {
+        int length = getStringLength(buffer, maxBytes);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+            length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Like {@link #getString} but returns the raw UTF-8 bytes, for callers that parse them directly.
+     */
+    public static byte[] getStringBytes(ByteBuffer buffer, int maxBytes) throws IOException {
+        byte[] value = new byte[getStringLength(buffer, maxBytes)];
+        buffer.get(value);
+        return value;
+    }
+
+    private static int getStringLength(ByteBuffer buffer, int maxBytes) throws IOException {
+        int length = getVarInt(buffer);
+        if (length <= 0 || length > maxBytes || length > buffer.remaining()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        return length;
+    }
+
+    private static Inflater acquireInflater() {
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            return new Inflater();
+        }
+        INFLATER_COUNT.decrementAndGet();
+        return inflater;
+    }
+
+    private static void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        if (INFLATER_COUNT.incrementAndGet() > INFLATER_LIMIT) {
+            INFLATER_COUNT.decrementAndGet();
+            inflater.end();
+            return;
+        }
+        INFLATERS.add(inflater);
+    }
+
+    private static byte[] handshakePrefix(int protocolVersion, String host) {
+        HandshakeKey key = new HandshakeKey(protocolVersion, host);
+        byte[] prefix = HANDSHAKE_PREFIXES.get(key);
+        if (prefix != null) {
+            return prefix;
+        }
+
+        byte[] hostBytes = host.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 5 + 5 + hostBytes.length);
+        putVarInt(buffer, 0x00);
+        putVarInt(buffer, protocolVersion);
+        putVarInt(buffer, hostBytes.length);
+        buffer.put(hostBytes);
+        prefix = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(prefix);
+
+        if (HANDSHAKE_PREFIXES.size() >= HANDSHAKE_CACHE_LIMIT) {
+            HANDSHAKE_PREFIXES.clear();
+        }
+        HANDSHAKE_PREFIXES.put(key, prefix);
+        return prefix;
+    }
+
+    private static final class HandshakeKey {
+        private final int protocolVersion;
+        private final String host;
+
+        HandshakeKey(int protocolVersion, String host) {
+            this.protocolVersion = protocolVersion;
+            this.host = host;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof HandshakeKey)) {
+                return false;
+            }
+            HandshakeKey key = (HandshakeKey) other;
+            return protocolVersion == key.protocolVersion && host.equals(key.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * host.hashCode() + protocolVersion;
+        }
+    }
+
+    /**
+     * Buffered frame reader for blocking sockets. Frames returned by
+     * {@link #readFrame} stay valid until the next call. Once a compression
+     * threshold is set, frames are unwrapped from the compressed format.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final InputStream in;
+        private ByteBuffer buffer;
+        private ByteBuffer inflated;
+        private int compressionThreshold = -1;
+
+        public Reader(InputStream in) {
+            this.in = in;
+            this.buffer = acquire();
+            this.buffer.flip();
+        }
+
+        public void setCompressionThreshold(int threshold) {
+            this.compressionThreshold = threshold;
+        }
+
+        public boolean isCompressed() {
+            return compressionThreshold >= 0;
+        }
+
+        public ByteBuffer readFrame(int maxLength) throws IOException {
+            ByteBuffer frame = readRawFrame(maxLength);
+            if (compressionThreshold < 0) {
+                return frame;
+            }
+
+            int dataLength = getVarInt(frame);
+            if (dataLength == 0) {
+                return frame.slice();
+            }
+            if (dataLength < 0 || dataLength > MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid uncompressed length: " + dataLength);
+            }
+            return inflate(frame, dataLength);
+        }
+
+        private ByteBuffer inflate(ByteBuffer frame, int dataLength) throws IOException {
+            if (inflated == null || inflated.capacity() < dataLength) {
+                release(inflated);
+                inflated = dataLength <= BUFFER_SIZE ? acquire() : ByteBuffer.allocate(dataLength);
+            }
+            inflated.clear();
+
+            Inflater inflater = acquireInflater();
+            inflater.setInput(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            try {
+                int total = 0;
+                while (total < dataLength) {
+                    int count = inflater.inflate(inflated.array(), inflated.arrayOffset() + total, dataLength - total);
+                    if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Compressed packet shorter than declared " + dataLength + " bytes");
+                    }
+                    total += count;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Bad compressed packet: " + e.getMessage());
+            } finally {
+                releaseInflater(inflater);
+            }
+            inflated.limit(dataLength);
+            return inflated;
+        }
+
+        private ByteBuffer readRawFrame(int maxLength) throws IOException {
+            int length;
+            while (true) {
+                buffer.mark();
+                length = tryGetFrameLength(buffer, maxLength);
+                if (length > 0) {
+                    break;
+                }
+                buffer.reset();
+                fill(buffer.remaining() + 1);
+            }
+
+            if (buffer.remaining() < length) {
+                fill(length);
+            }
+            ByteBuffer frame = buffer.slice();
+            frame.limit(length);
+            buffer.position(buffer.position() + length);
+            return frame;
+        }
+
+        private void fill(int needed) throws IOException {
+            if (needed > buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                larger.put(buffer);
+                release(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+
+            while (buffer.position() < needed) {
+                int read = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (read < 0) {
+                    buffer.flip();
+                    throw new EOFException("Connection closed by server");
+                }
+                buffer.position(buffer.position() + read);
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() {
+            release(buffer);
+            release(inflated);
+            buffer = null;
+            inflated = null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One step of the scan pipeline: a bounded queue drained by its own worker threads.
+ * {@link #put} blocks while the queue is full, so a slow stage holds back the stage
+ * that feeds it instead of piling work up in memory. Workers come from
+ * {@link WorkerThreads}, so on Java 21+ a stage whose handlers wait on probes costs
+ * virtual threads, not platform ones.
+ */
+public class PipelineStage<T> {
+    /**
+     * Work done for one item. Whatever it throws is logged and the item dropped.
+     */
+    public interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+
+    // Queued once per worker by finish(); a worker that takes it leaves
+    private static final Object END = new Object();
+
+    private final String name;
+    private final BlockingQueue<Object> queue;
+    private final Handler<T> handler;
+    private final int workerCount;
+    private final ExecutorService workers;
+    private final AtomicInteger busy;
+    private final AtomicLong accepted;
+    private final AtomicLong processed;
+    private final AtomicInteger maxDepth;
+    private final long startedAt;
+    private volatile boolean closed;
+    private volatile boolean cancelled;
+
+    public PipelineStage(String name, int workerCount, int capacity, Handler<T> handler) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.handler = handler;
+        this.workerCount = workerCount;
+        this.workers = WorkerThreads.newCachedExecutor("Stage-" + name);
+        this.busy = new AtomicInteger();
+        this.accepted = new AtomicLong();
+        this.processed = new AtomicLong();
+        this.maxDepth = new AtomicInteger();
+        this.startedAt = System.currentTimeMillis();
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Hands an item to the stage, waiting for room in the queue. Returns false once
+     * the stage is cancelled.
+     */
+    public boolean put(T item) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Stage " + name + " no longer accepts work");
+        }
+        while (!cancelled) {
+            if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                accepted.incrementAndGet();
+                int depth = queue.size();
+                maxDepth.accumulateAndGet(depth, Math::max);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * No more input: workers leave once the queue is empty. Blocks until they have.
+     */
+    public void finish() throws InterruptedException {
+        closed = true;
+        for (int i = 0; i < workerCount && !cancelled; i++) {
+            queue.put(END);
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops queued items and stops the workers without waiting for them.
+     */
+    public void cancel() {
+        cancelled = true;
+        closed = true;
+        queue.clear();
+        workers.shutdownNow();
+    }
+
+    /**
+     * True when every item handed in has been handled, including whatever the
+     * handlers did with it.
+     */
+    public boolean isIdle() {
+        return processed.get() == accepted.get();
+    }
+
+    public Snapshot snapshot() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startedAt);
+        long done = processed.get();
+        return new Snapshot(name, queue.size(), busy.get(), maxDepth.get(), accepted.get(), done,
+            done * 1000.0 / elapsed);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work() {
+        while (!cancelled) {
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next == END) {
+                return;
+            }
+            busy.incrementAndGet();
+            try {
+                handler.handle((T) next);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!cancelled) {
+                    System.err.println("[Pipeline] " + name + " failed: " + e.getMessage());
+                }
+            } finally {
+                busy.decrementAndGet();
+                processed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Queue depth and counters of a stage at one moment.
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final int depth;
+        private final int busy;
+        private final int maxDepth;
+        private final long accepted;
+        private final long processed;
+        private final double perSecond;
+
+        Snapshot(String name, int depth, int busy, int maxDepth, long accepted, long processed, double perSecond) {
+            this.name = name;
+            this.depth = depth;
+            this.busy = busy;
+            this.maxDepth = maxDepth;
+            this.accepted = accepted;
+            this.processed = processed;
+            this.perSecond = perSecond;
+        }
+
+        public String getName() { return name; }
+        public int getDepth() { return depth; }
+        public int getBusy() { return busy; }
+        public int getMaxDepth() { return maxDepth; }
+        public long getAccepted() { return accepted; }
+        public long getProcessed() { return processed; }
+        public double getPerSecond() { return perSecond; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d queued (max %d), %d busy, %d/%d done, %.1f/s",
+                name, depth, maxDepth, busy, processed, accepted, perSecond);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.BitSet;
+
+/**
+ * Ports to scan as a bitset over 1..65535, parsed from expressions such as
+ * "25565-25600,30000-30999" so that gaps between bands are never probed.
+ */
+public class PortSet {
+    private static final int MAX_PORT = 65535;
+
+    private final BitSet ports;
+    private final int size;
+
+    private PortSet(BitSet ports) {
+        this.ports = ports;
+        this.size = ports.cardinality();
+    }
+
+    /**
+     * The contiguous window used by the Start Port / Scan Amount fields.
+     */
+    public static PortSet range(int startPort, int count) {
+        if (startPort < 1 || startPort > MAX_PORT) {
+            throw new IllegalArgumentException("Start port must be between 1 and 65535");
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("Scan amount must be greater than 0");
+        }
+        if ((long) startPort + count - 1 > MAX_PORT) {
+            throw new IllegalArgumentException("Port range must end at 65535 or lower");
+        }
+        BitSet ports = new BitSet(startPort + count);
+        ports.set(startPort, startPort + count);
+        return new PortSet(ports);
+    }
+
+    static PortSet of(BitSet ports) {
+        return new PortSet((BitSet) ports.clone());
+    }
+
+    /**
+     * Parses comma, semicolon or space separated ports and "from-to" bands.
+     *
+     * @throws IllegalArgumentException for a malformed part or a port outside 1..65535
+     */
+    public static PortSet parse(String spec) {
+        BitSet ports = new BitSet();
+        for (String part : spec.trim().split("[\\s,;]+")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            int from = parsePort(dash < 0 ? part : part.substring(0, dash), part);
+            int to = dash < 0 ? from : parsePort(part.substring(dash + 1), part);
+            ports.set(Math.min(from, to), Math.max(from, to) + 1);
+        }
+        if (ports.isEmpty()) {
+            throw new IllegalArgumentException("No ports given");
+        }
+        return new PortSet(ports);
+    }
+
+    public static boolean isExpression(String text) {
+        return text.matches(".*[-,;\\s].*");
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int first() {
+        return ports.nextSetBit(0);
+    }
+
+    public int last() {
+        return ports.length() - 1;
+    }
+
+    /**
+     * Returns the first port at or after {@code fromPort}, or -1.
+     */
+    public int next(int fromPort) {
+        return fromPort > MAX_PORT ? -1 : ports.nextSetBit(fromPort);
+    }
+
+    public boolean contains(int port) {
+        return port >= 1 && port <= MAX_PORT && ports.get(port);
+    }
+
+    /**
+     * The set written back in the same syntax {@link #parse} reads.
+     */
+    @Override
+    public String toString() {
+        StringBuilder spec = new StringBuilder();
+        for (int from = ports.nextSetBit(0); from >= 0; from = ports.nextSetBit(from)) {
+            int to = ports.nextClearBit(from) - 1;
+            if (spec.length() > 0) {
+                spec.append(',');
+            }
+            spec.append(from);
+            if (to > from) {
+                spec.append('-').append(to);
+            }
+            from = to + 1;
+        }
+        return spec.toString();
+    }
+
+    private static int parsePort(String text, String part) {
+        try {
+            int port = Integer.parseInt(text.trim());
+            if (port >= 1 && port <= MAX_PORT) {
+                return port;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid port or band: " + part);
+    }
+}
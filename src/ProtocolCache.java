@@ -0,0 +1,157 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which login protocol last gave a conclusive whitelist answer for an
+ * endpoint, keyed by ip:port and tied to the version the server reported at the time.
+ */
+public class ProtocolCache {
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+    // A confirmed entry is written back at most this often just to move its timestamp
+    private static final long REFRESH_MS = TimeUnit.DAYS.toMillis(1);
+    private static ProtocolCache shared;
+
+    private final File file;
+    private final Map<String, Entry> entries;
+    private volatile boolean dirty;
+
+    ProtocolCache(File file) {
+        this.file = file;
+        this.entries = new ConcurrentHashMap<>();
+        load();
+    }
+
+    public static synchronized ProtocolCache shared() {
+        if (shared == null) {
+            shared = new ProtocolCache(new File(AppPaths.cacheDir(), "login-protocols.tsv"));
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the cached login protocol, or null. An entry recorded for a different
+     * version or protocol is dropped here so it is not tried again.
+     */
+    public Integer lookup(String ip, int port, String version, int reportedProtocol) {
+        String key = key(ip, port);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.reportedProtocol != reportedProtocol || !entry.version.equals(clean(version))) {
+            invalidate(ip, port);
+            return null;
+        }
+        return entry.loginProtocol;
+    }
+
+    public void record(String ip, int port, String version, int reportedProtocol, int loginProtocol) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(clean(version), reportedProtocol, loginProtocol, now);
+        Entry previous = entries.put(key(ip, port), entry);
+        // Without the refresh, save() would age out entries that every scan confirms
+        if (previous == null || previous.loginProtocol != loginProtocol || previous.reportedProtocol != reportedProtocol
+                || !previous.version.equals(entry.version) || now - previous.updatedAt >= REFRESH_MS) {
+            dirty = true;
+        }
+    }
+
+    public void invalidate(String ip, int port) {
+        if (entries.remove(key(ip, port)) != null) {
+            dirty = true;
+        }
+    }
+
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory()) {
+            parent.mkdirs();
+        }
+
+        long oldest = System.currentTimeMillis() - MAX_AGE_MS;
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                    Entry entry = item.getValue();
+                    if (entry.updatedAt < oldest) {
+                        continue;
+                    }
+                    int split = item.getKey().lastIndexOf(':');
+                    writer.write(item.getKey().substring(0, split) + '\t' + item.getKey().substring(split + 1)
+                        + '\t' + entry.reportedProtocol + '\t' + entry.loginProtocol
+                        + '\t' + entry.updatedAt + '\t' + entry.version + '\n');
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("[Protocol Cache] Could not save " + file.getAbsolutePath() + ": " + e.getMessage());
+            temp.delete();
+        }
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 6);
+                if (parts.length < 6) {
+                    continue;
+                }
+                try {
+                    entries.put(parts[0] + ":" + Integer.parseInt(parts[1]), new Entry(parts[5],
+                        Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), Long.parseLong(parts[4])));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Protocol Cache] Could not read " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    private static String key(String ip, int port) {
+        return ip + ":" + port;
+    }
+
+    private static String clean(String version) {
+        return version == null ? "" : version.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private static final class Entry {
+        private final String version;
+        private final int reportedProtocol;
+        private final int loginProtocol;
+        private final long updatedAt;
+
+        Entry(String version, int reportedProtocol, int loginProtocol, long updatedAt) {
+            this.version = version;
+            this.reportedProtocol = reportedProtocol;
+            this.loginProtocol = loginProtocol;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Counts, per reported version pattern, how often each login protocol gave a
+ * conclusive answer, and orders whitelist candidates by that success rate.
+ */
+public class ProtocolStats {
+    private static final Pattern NUMBER_GROUP = Pattern.compile("(\\d+)((?:\\.\\d+)+)?");
+    private static final int MAX_PATTERNS = 2048;
+    private static ProtocolStats shared;
+
+    private final File file;
+    private final int[] protocols;
+    private final Map<Integer, Integer> protocolIndex;
+    private final Map<String, AtomicIntegerArray> table;
+    private volatile boolean dirty;
+
+    ProtocolStats(File file, int[] protocols) {
+        this.file = file;
+        this.protocols = protocols.clone();
+        this.protocolIndex = new ConcurrentHashMap<>();
+        for (int i = 0; i < protocols.length; i++) {
+            protocolIndex.put(protocols[i], i);
+        }
+        this.table = new ConcurrentHashMap<>();
+        load();
+    }
+
+    public static synchronized ProtocolStats shared() {
+        if (shared == null) {
+            shared = new ProtocolStats(new File(AppPaths.cacheDir(), "protocol-stats.tsv"),
+                MinecraftProtocol.knownProtocols());
+        }
+        return shared;
+    }
+
+    /**
+     * Reduces a status version name to the key stats are grouped by: lowercase,
+     * Minecraft versions kept as is, other numbers cut to their first part
+     * ("Paper 1.20.4" stays, "Velocity 3.3.0-SNAPSHOT" becomes "velocity 3.x-snapshot").
+     */
+    public static String versionPattern(String version) {
+        if (version == null) {
+            return "";
+        }
+
+        StringBuilder pattern = new StringBuilder();
+        for (String token : version.trim().toLowerCase().split("\\s+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (pattern.length() > 0) {
+                pattern.append(' ');
+            }
+            Matcher matcher = NUMBER_GROUP.matcher(token);
+            StringBuffer replaced = new StringBuffer();
+            while (matcher.find()) {
+                boolean minecraftVersion = "1".equals(matcher.group(1)) && matcher.group(2) != null;
+                matcher.appendReplacement(replaced, minecraftVersion || matcher.group(2) == null ? "$0" : "$1.x");
+            }
+            matcher.appendTail(replaced);
+            pattern.append(replaced);
+        }
+        return pattern.toString();
+    }
+
+    public void recordAttempt(String pattern, int protocol, boolean success) {
+        Integer index = protocolIndex.get(protocol);
+        if (index == null) {
+            return;
+        }
+
+        AtomicIntegerArray counts = table.get(pattern);
+        if (counts == null) {
+            if (table.size() >= MAX_PATTERNS) {
+                return;
+            }
+            counts = table.computeIfAbsent(pattern, key -> new AtomicIntegerArray(protocols.length * 2));
+        }
+        if (success) {
+            counts.incrementAndGet(index * 2);
+        }
+        counts.incrementAndGet(index * 2 + 1);
+        dirty = true;
+    }
+
+    /**
+     * Returns the candidates sorted by smoothed success rate for the pattern,
+     * keeping the given order between protocols with equal rates.
+     */
+    public List<Integer> order(String pattern, List<Integer> candidates) {
+        AtomicIntegerArray counts = table.get(pattern);
+        List<Integer> ordered = new ArrayList<>(candidates);
+        if (counts == null) {
+            return ordered;
+        }
+
+        // Rates are read once up front; other scans keep updating the counters while we sort
+        Map<Integer, Double> rates = new HashMap<>();
+        for (Integer protocol : ordered) {
+            rates.put(protocol, successRate(counts, protocol));
+        }
+        ordered.sort((left, right) -> Double.compare(rates.get(right), rates.get(left)));
+        return ordered;
+    }
+
+    private double successRate(AtomicIntegerArray counts, int protocol) {
+        Integer index = protocolIndex.get(protocol);
+        if (index == null) {
+            return 0.5;
+        }
+        int successes = counts.get(index * 2);
+        int attempts = counts.get(index * 2 + 1);
+        return (successes + 1.0) / (attempts + 2.0);
+    }
+
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, AtomicIntegerArray> entry : table.entrySet()) {
+                    AtomicIntegerArray counts = entry.getValue();
+                    for (int i = 0; i < protocols.length; i++) {
+                        int attempts = counts.get(i * 2 + 1);
+                        if (attempts > 0) {
+                            writer.write(entry.getKey() + '\t' + protocols[i] + '\t'
+                                + counts.get(i * 2) + '\t' + attempts + '\n');
+                        }
+                    }
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("[Protocol Stats] Could not save " + file.getAbsolutePath() + ": " + e.getMessage());
+            temp.delete();
+        }
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue;
+                }
+                try {
+                    Integer index = protocolIndex.get(Integer.parseInt(parts[1]));
+                    if (index == null) {
+                        continue;
+                    }
+                    AtomicIntegerArray counts = table.computeIfAbsent(parts[0],
+                        key -> new AtomicIntegerArray(protocols.length * 2));
+                    counts.set(index * 2, Integer.parseInt(parts[2]));
+                    counts.set(index * 2 + 1, Integer.parseInt(parts[3]));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Protocol Stats] Could not read " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+}
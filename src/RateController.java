@@ -0,0 +1,98 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces new connections with a global token bucket and one bucket per host.
+ * Taking a token never blocks; callers get back how long to wait instead.
+ */
+public class RateController {
+    // Up to 100 ms worth of tokens may be spent at once after an idle moment
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int EVICT_EVERY = 4096;
+
+    private final TokenBucket global;
+    private final double perHostPerSecond;
+    private final Map<Long, TokenBucket> hosts;
+    private final AtomicLong acquired;
+
+    public RateController(double globalPerSecond, double perHostPerSecond) {
+        if (globalPerSecond <= 0 || perHostPerSecond <= 0) {
+            throw new IllegalArgumentException("Rates must be greater than 0");
+        }
+        this.global = new TokenBucket(globalPerSecond);
+        this.perHostPerSecond = perHostPerSecond;
+        this.hosts = new ConcurrentHashMap<>();
+        this.acquired = new AtomicLong();
+    }
+
+    /**
+     * Takes one token from the host bucket and one from the global bucket.
+     *
+     * @return 0 when the connection may start now, otherwise nanoseconds until it is worth asking again
+     */
+    public long tryAcquire(long host) {
+        if ((acquired.incrementAndGet() & (EVICT_EVERY - 1)) == 0) {
+            evictIdle();
+        }
+        TokenBucket hostBucket = hosts.computeIfAbsent(host, key -> new TokenBucket(perHostPerSecond));
+        long hostWait = hostBucket.tryAcquire();
+        if (hostWait > 0) {
+            return hostWait;
+        }
+        long globalWait = global.tryAcquire();
+        if (globalWait > 0) {
+            hostBucket.refund();
+        }
+        return globalWait;
+    }
+
+    /**
+     * Drops buckets that have refilled completely; a new bucket behaves the same, and
+     * this keeps the map at the hosts touched recently rather than every host scanned.
+     */
+    private void evictIdle() {
+        long now = System.nanoTime();
+        hosts.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * Lock-free bucket kept as the time at which it will next be full
+     * (the virtual-scheduling form of a token bucket).
+     */
+    static final class TokenBucket {
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLong fullAt;
+
+        TokenBucket(double permitsPerSecond) {
+            this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+            this.toleranceNanos = Math.max(0L, BURST_NANOS - intervalNanos);
+            this.fullAt = new AtomicLong(System.nanoTime());
+        }
+
+        long tryAcquire() {
+            while (true) {
+                long now = System.nanoTime();
+                long current = fullAt.get();
+                long start = current - now > 0 ? current : now;
+                long wait = start - now - toleranceNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, start + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+
+        void refund() {
+            fullAt.addAndGet(-intervalNanos);
+        }
+    }
+}
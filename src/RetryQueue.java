@@ -0,0 +1,153 @@
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Probes that timed out, waiting for another try. Each retry is due after an
+ * exponential backoff with jitter, so retries of one host do not arrive together,
+ * and the queue accepts at most {@code budget} retries per scan so a network that
+ * drops everything cannot double the scan.
+ */
+public class RetryQueue {
+    private final int budget;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final PriorityQueue<Entry> due;
+    private final ReentrantLock lock;
+    private final Condition changed;
+    private int scheduled;
+    private int rejected;
+
+    /**
+     * @param budget      retries accepted over the queue's lifetime
+     * @param maxAttempts retries allowed for one target
+     */
+    public RetryQueue(int budget, int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        if (budget < 0 || maxAttempts < 1 || baseDelayMs < 1 || maxDelayMs < baseDelayMs) {
+            throw new IllegalArgumentException("Retry limits must be positive and base delay <= max delay");
+        }
+        this.budget = budget;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.due = new PriorityQueue<>((a, b) -> Long.compare(a.dueAt, b.dueAt));
+        this.lock = new ReentrantLock();
+        this.changed = lock.newCondition();
+    }
+
+    /**
+     * Schedules another try of a target that has failed {@code failures} times.
+     * Returns false when the target is out of attempts or the budget is spent.
+     */
+    public boolean offer(long hostKey, int port, int failures) {
+        lock.lock();
+        try {
+            if (failures > maxAttempts || scheduled >= budget) {
+                rejected++;
+                return false;
+            }
+            scheduled++;
+            // Half the backoff is fixed, the other half random
+            long backoff = Math.min(maxDelayMs, baseDelayMs << Math.min(failures - 1, 20));
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            due.add(new Entry(hostKey, port, failures, System.currentTimeMillis() + delay));
+            changed.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for the earliest retry to come due.
+     *
+     * @return the retry, or null if none came due in time
+     */
+    public Entry poll(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                Entry head = due.peek();
+                if (head != null && head.dueAt <= now) {
+                    return due.poll();
+                }
+                if (now >= deadline) {
+                    return null;
+                }
+                long wait = head != null ? Math.min(head.dueAt, deadline) - now : deadline - now;
+                changed.await(wait, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return due.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return due.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retries accepted so far, including those already taken.
+     */
+    public int getScheduled() {
+        lock.lock();
+        try {
+            return scheduled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Targets given up on because they were out of attempts or the budget was spent.
+     */
+    public int getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static final class Entry {
+        private final long hostKey;
+        private final int port;
+        private final int failures;
+        private final long dueAt;
+
+        Entry(long hostKey, int port, int failures, long dueAt) {
+            this.hostKey = hostKey;
+            this.port = port;
+            this.failures = failures;
+            this.dueAt = dueAt;
+        }
+
+        public long getHostKey() { return hostKey; }
+        public int getPort() { return port; }
+
+        /**
+         * Times the target has failed before this retry.
+         */
+        public int getFailures() { return failures; }
+    }
+}
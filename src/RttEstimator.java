@@ -0,0 +1,80 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host round-trip estimates in the style of TCP's retransmission timer (RFC 6298):
+ * a smoothed RTT and its mean deviation, updated from connect handshakes. A connect
+ * that is accepted or refused both took one round trip, so either makes a sample.
+ * Hosts without a sample get the ceiling, which is the old fixed timeout.
+ */
+public class RttEstimator {
+    private static final int K = 4;
+    // One lost SYN costs about a second before the kernel resends it; do not give up earlier
+    private static final int CONNECT_FLOOR_MS = 1000;
+    private static final int READ_FLOOR_MS = 1000;
+    // Servers take a moment to build their status or login answer on top of the network time
+    private static final int READ_SLACK_MS = 500;
+    private static final int MAX_HOSTS = 65536;
+    private static final RttEstimator SHARED = new RttEstimator();
+
+    private final Map<String, Estimate> hosts = new ConcurrentHashMap<>();
+
+    public static RttEstimator shared() {
+        return SHARED;
+    }
+
+    /**
+     * Records how long one connect handshake to {@code host} took.
+     */
+    public void sample(String host, long rttMs) {
+        if (host == null || rttMs < 0) {
+            return;
+        }
+        if (hosts.size() >= MAX_HOSTS) {
+            hosts.clear();
+        }
+        hosts.computeIfAbsent(host, key -> new Estimate()).add(rttMs);
+    }
+
+    public int connectTimeoutMs(String host) {
+        Estimate estimate = host != null ? hosts.get(host) : null;
+        if (estimate == null) {
+            return MinecraftProtocol.CONNECT_TIMEOUT;
+        }
+        return clamp(estimate.timeoutMs(), CONNECT_FLOOR_MS, MinecraftProtocol.CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Time to wait for the next packet from {@code host}, never more than {@code ceilingMs}.
+     */
+    public int readTimeoutMs(String host, int ceilingMs) {
+        Estimate estimate = host != null ? hosts.get(host) : null;
+        if (estimate == null) {
+            return ceilingMs;
+        }
+        return clamp(estimate.timeoutMs() + READ_SLACK_MS, Math.min(READ_FLOOR_MS, ceilingMs), ceilingMs);
+    }
+
+    private static int clamp(long value, int floor, int ceiling) {
+        return (int) Math.max(floor, Math.min(ceiling, value));
+    }
+
+    private static final class Estimate {
+        private double srtt = -1;
+        private double rttvar;
+
+        synchronized void add(long rttMs) {
+            if (srtt < 0) {
+                srtt = rttMs;
+                rttvar = rttMs / 2.0;
+            } else {
+                rttvar = 0.75 * rttvar + 0.25 * Math.abs(srtt - rttMs);
+                srtt = 0.875 * srtt + 0.125 * rttMs;
+            }
+        }
+
+        synchronized long timeoutMs() {
+            return (long) Math.ceil(srtt + K * rttvar);
+        }
+    }
+}
@@ -24,8 +24,11 @@ public class ScannerGUI extends JFrame {
     private static Color SUCCESS = new Color(111, 194, 139);
     private static Color DANGER = new Color(203, 92, 102);
     private static final String FONT = "Segoe UI";
+    private static final String IP_FORMAT_HINT = "Format: IP, IP1-IP10, or IP1 IP2 IP3";
 
     private final JTextArea ipArea;
+    private final JLabel formatLabel;
+    private final JButton inventoryButton;
     private final JTextField portField;
     private final JTextField amountField;
     private final JTextField usernameField;
@@ -49,6 +52,7 @@ public class ScannerGUI extends JFrame {
     private volatile boolean stopRequested;
     private File lastResultsDir;
     private File lastScreenshotsDir;
+    private InventoryFile inventory;
 
     private enum ThemeMode {
         DARK("Dark"),
@@ -114,9 +118,17 @@ public class ScannerGUI extends JFrame {
         });
 
         ipBlock.add(scrollPane, BorderLayout.CENTER);
-        JLabel formatLabel = new JLabel("Format: IP, IP1-IP10, or IP1 IP2 IP3");
+        JPanel formatRow = new JPanel(new BorderLayout(12, 0));
+        formatRow.setOpaque(false);
+        formatLabel = new JLabel(IP_FORMAT_HINT);
         formatLabel.putClientProperty("mutedLabel", Boolean.TRUE);
-        ipBlock.add(formatLabel, BorderLayout.SOUTH);
+        formatRow.add(formatLabel, BorderLayout.CENTER);
+        inventoryButton = new ModernButton("Load Inventory...");
+        inventoryButton.setPreferredSize(new Dimension(150, 30));
+        inventoryButton.setToolTipText("Scan a host:port list file (one entry per line) instead of the IPs and ports above");
+        inventoryButton.addActionListener(e -> toggleInventory());
+        formatRow.add(inventoryButton, BorderLayout.EAST);
+        ipBlock.add(formatRow, BorderLayout.SOUTH);
         setupContent.add(ipBlock, BorderLayout.NORTH);
 
         JPanel fieldsPanel = new JPanel(new GridLayout(4, 2, 18, 10));
@@ -124,7 +136,8 @@ public class ScannerGUI extends JFrame {
 
         portField = new JTextField("25565", 10);
         portField.setFont(new Font(FONT, Font.PLAIN, 13));
-        fieldsPanel.add(fieldBlock("Start Port", portField));
+        portField.setToolTipText("Start port, or bands like 25565-25600,30000-30999 (Scan Amount is then ignored)");
+        fieldsPanel.add(fieldBlock("Start Port / Bands", portField));
 
         amountField = new JTextField("100", 10);
         amountField.setFont(new Font(FONT, Font.PLAIN, 13));
@@ -291,6 +304,7 @@ public class ScannerGUI extends JFrame {
         styleSecondaryButton(openResultsButton);
         styleSecondaryButton(openScreenshotsButton);
         styleDangerButton(cleanOutputButton);
+        styleSecondaryButton(inventoryButton);
 
         add(mainPanel);
         pack();
@@ -328,73 +342,6 @@ public class ScannerGUI extends JFrame {
         return panel;
     }
 
-    private List<String> parseIPs(String input) {
-        List<String> ips = new ArrayList<>();
-        String[] parts = input.trim().split("[\\s,;]+");
-        
-        for (String part : parts) {
-            if (part.isEmpty()) continue;
-            
-            // Check for range format
-            if (part.contains("-")) {
-                String[] range = part.split("-", 2);
-                String start = range[0].trim();
-                String end = range[1].trim();
-                
-                // Try to find numbers anywhere in the string
-                java.util.regex.Pattern numberPattern = java.util.regex.Pattern.compile("(\\d+)");
-                java.util.regex.Matcher startMatcher = numberPattern.matcher(start);
-                java.util.regex.Matcher endMatcher = numberPattern.matcher(end);
-                
-                // Find all numbers in start string
-                List<Integer> startNumbers = new ArrayList<>();
-                List<Integer> startPositions = new ArrayList<>();
-                while (startMatcher.find()) {
-                    startNumbers.add(Integer.parseInt(startMatcher.group()));
-                    startPositions.add(startMatcher.start());
-                }
-                
-                // Find all numbers in end string
-                List<Integer> endNumbers = new ArrayList<>();
-                while (endMatcher.find()) {
-                    endNumbers.add(Integer.parseInt(endMatcher.group()));
-                }
-                
-                // If both have at least one number
-                if (!startNumbers.isEmpty() && !endNumbers.isEmpty()) {
-                    // Use the LAST number from each string
-                    int startNum = startNumbers.get(startNumbers.size() - 1);
-                    int endNum = endNumbers.get(endNumbers.size() - 1);
-                    int lastNumPos = startPositions.get(startPositions.size() - 1);
-                    
-                    // Extract prefix and suffix
-                    String prefix = start.substring(0, lastNumPos);
-                    String suffix = start.substring(lastNumPos + String.valueOf(startNum).length());
-                    
-                    // Generate range
-                    if (startNum <= endNum) {
-                        for (int i = startNum; i <= endNum; i++) {
-                            ips.add(prefix + i + suffix);
-                        }
-                    } else {
-                        // Reverse range
-                        for (int i = startNum; i >= endNum; i--) {
-                            ips.add(prefix + i + suffix);
-                        }
-                    }
-                } else {
-                    // No numbers found, add as-is
-                    ips.add(start);
-                    ips.add(end);
-                }
-            } else {
-                ips.add(part);
-            }
-        }
-        
-        return ips;
-    }
-    
     private void handleScanButton() {
         if (scanButton.getText().equals("Start Scan")) {
             startScan();
@@ -404,43 +351,8 @@ public class ScannerGUI extends JFrame {
     }
     
     private void startScan() {
-        String ipInput = ipArea.getText().trim();
-        if (ipInput.isEmpty()) {
-            showError("Please enter at least one IP address");
-            return;
-        }
-        
-        List<String> ips = parseIPs(ipInput);
-        if (ips.isEmpty()) {
-            showError("No valid IPs found");
-            return;
-        }
-        
-        int port;
-        try {
-            port = Integer.parseInt(portField.getText().trim());
-            if (port < 1 || port > 65535) {
-                showError("Port must be between 1 and 65535");
-                return;
-            }
-        } catch (NumberFormatException e) {
-            showError("Invalid port number");
-            return;
-        }
-        
-        int amount;
-        try {
-            amount = Integer.parseInt(amountField.getText().trim());
-            if (amount < 1 || amount > 10000) {
-                showError("Amount must be between 1 and 10000");
-                return;
-            }
-            if ((long) port + amount - 1 > 65535) {
-                showError("Port range must end at 65535 or lower");
-                return;
-            }
-        } catch (NumberFormatException e) {
-            showError("Invalid amount");
+        TargetSource targets = inventory != null ? inventory : readGridTargets();
+        if (targets == null) {
             return;
         }
 
@@ -485,7 +397,7 @@ public class ScannerGUI extends JFrame {
         styleButton(scanButton, DANGER, Color.WHITE, new Color(248, 113, 113));
         progressBar.setValue(0);
         progressBar.setString("Initializing...");
-        statusLabel.setText("Status: Starting scan for " + ips.size() + " IP(s)...");
+        statusLabel.setText("Status: Starting scan of " + targets.size() + " target(s)...");
         statsLabel.setText("Online: 0 | WhiteList: 0");
         changesArea.setText(monitoringEnabled
             ? "Monitoring started. First run becomes the baseline."
@@ -494,29 +406,123 @@ public class ScannerGUI extends JFrame {
         ScannerService.ScanSpeed speed = (ScannerService.ScanSpeed) speedCombo.getSelectedItem();
         final int monitoringInterval = monitoringIntervalMinutes;
 
-        workerThread = new Thread(() -> runScanLoop(ips, port, amount, speed, checkUsername,
+        workerThread = new Thread(() -> runScanLoop(targets, speed, checkUsername,
             screenshotsEnabled, screenshotWaitMs, monitoringEnabled, monitoringInterval), "ScannerThread");
         workerThread.start();
     }
 
-    private void runScanLoop(List<String> ips, int port, int amount, ScannerService.ScanSpeed speed,
+    /**
+     * Reads the IP area and port fields. Shows the problem and returns null if they do not parse.
+     */
+    private TargetSource readGridTargets() {
+        String ipInput = ipArea.getText().trim();
+        if (ipInput.isEmpty()) {
+            showError("Please enter at least one IP address");
+            return null;
+        }
+        
+        TargetSet ips;
+        try {
+            ips = TargetSet.parse(ipInput);
+        } catch (IllegalArgumentException e) {
+            showError(e.getMessage());
+            return null;
+        }
+        if (ips.isEmpty()) {
+            showError("No valid IPs found");
+            return null;
+        }
+        
+        PortSet ports;
+        String portInput = portField.getText().trim();
+        if (PortSet.isExpression(portInput)) {
+            try {
+                ports = PortSet.parse(portInput);
+            } catch (IllegalArgumentException e) {
+                showError(e.getMessage());
+                return null;
+            }
+        } else {
+            int port;
+            try {
+                port = Integer.parseInt(portInput);
+                if (port < 1 || port > 65535) {
+                    showError("Port must be between 1 and 65535");
+                    return null;
+                }
+            } catch (NumberFormatException e) {
+                showError("Invalid port number");
+                return null;
+            }
+            
+            int amount;
+            try {
+                amount = Integer.parseInt(amountField.getText().trim());
+                if (amount < 1 || amount > 10000) {
+                    showError("Amount must be between 1 and 10000");
+                    return null;
+                }
+                if ((long) port + amount - 1 > 65535) {
+                    showError("Port range must end at 65535 or lower");
+                    return null;
+                }
+            } catch (NumberFormatException e) {
+                showError("Invalid amount");
+                return null;
+            }
+            ports = PortSet.range(port, amount);
+        }
+        if (ips.size() * ports.size() > Integer.MAX_VALUE) {
+            showError("Too many IP/port combinations, narrow the IP ranges or the ports");
+            return null;
+        }
+        return new GridTargets(ips, ports);
+    }
+
+    private void runScanLoop(TargetSource targets, ScannerService.ScanSpeed speed,
                              String checkUsername, boolean screenshotsEnabled, int screenshotWaitMs,
                              boolean monitoringEnabled, int monitoringIntervalMinutes) {
-        Map<String, ServerInfo> previousResults = null;
+        ServerDiff diff = new ServerDiff();
+        ServerDiff.Index previousResults = null;
+        MonitorSchedule schedule = monitoringEnabled
+            ? new MonitorSchedule(monitoringIntervalMinutes * 60L * 1000L)
+            : null;
         int runNumber = 1;
 
         try {
             while (!stopRequested) {
                 final int currentRun = runNumber;
+                // Status polls fold into the last sweep's results, so there has to be one
+                boolean fullSweep = schedule == null || previousResults == null
+                    || schedule.isFullSweepDue(System.currentTimeMillis());
+                List<MonitorSchedule.Entry> dueEntries = fullSweep
+                    ? Collections.emptyList()
+                    : schedule.takeDue(System.currentTimeMillis());
                 SwingUtilities.invokeLater(() -> {
                     progressBar.setValue(0);
                     progressBar.setString("Initializing...");
-                    statusLabel.setText(monitoringEnabled
-                        ? "Monitoring run #" + currentRun + " started..."
-                        : "Scan started...");
+                    statusLabel.setText(!monitoringEnabled
+                        ? "Scan started..."
+                        : fullSweep
+                            ? "Monitoring run #" + currentRun + " started (full sweep)..."
+                            : "Monitoring run #" + currentRun + " started (status poll of "
+                                + dueEntries.size() + " server(s))...");
                 });
 
-                ScannerService scanner = new ScannerService(ips, port, amount, speed,
+                if (!fullSweep) {
+                    previousResults = runStatusPoll(diff, schedule, dueEntries, previousResults, speed,
+                        checkUsername, currentRun);
+                    if (previousResults == null) {
+                        break;
+                    }
+                    if (!waitForNextMonitoringRun(schedule.nextDueAt(), currentRun + 1)) {
+                        break;
+                    }
+                    runNumber++;
+                    continue;
+                }
+
+                ScannerService scanner = new ScannerService(targets, speed,
                     checkUsername, screenshotsEnabled, screenshotWaitMs);
                 currentScanner = scanner;
 
@@ -541,22 +547,24 @@ public class ScannerGUI extends JFrame {
                 scanner.saveJsonResults(jsonFile);
 
                 List<ServerInfo> currentResults = scanner.getResultsSnapshot();
-                String changeText = buildChangeSummary(previousResults, currentResults, currentRun, monitoringEnabled);
-                previousResults = toServerMap(currentResults);
+                ServerDiff.Index currentIndex = diff.index(currentResults);
+                String changeText = buildChangeSummary(diff, previousResults, currentIndex, currentRun, monitoringEnabled);
+                previousResults = currentIndex;
 
                 File screenshotFolder = scanner.getScreenshotOutputDir();
                 lastResultsDir = AppPaths.resultsDir();
                 lastScreenshotsDir = screenshotFolder;
                 currentScanner = null;
 
-                showRunComplete(ips, txtFile, csvFile, jsonFile, screenshotFolder,
+                showRunComplete(targets, txtFile, csvFile, jsonFile, screenshotFolder,
                     changeText, monitoringEnabled, currentRun);
 
                 if (!monitoringEnabled) {
                     break;
                 }
 
-                if (!waitForNextMonitoringRun(monitoringIntervalMinutes, currentRun + 1)) {
+                schedule.fullSweepDone(currentResults, System.currentTimeMillis());
+                if (!waitForNextMonitoringRun(schedule.nextDueAt(), currentRun + 1)) {
                     break;
                 }
                 runNumber++;
@@ -591,8 +599,24 @@ public class ScannerGUI extends JFrame {
         SwingUtilities.invokeLater(() -> {
             String prefix = monitoringEnabled ? "Run #" + runNumber + " - " : "";
             progressBar.setValue(progress.getProgress());
-            statsLabel.setText(String.format("Online: %d | WhiteList: %d",
-                progress.getOnlineTotal(), progress.getWhitelistTotal()));
+            AimdController.Snapshot adaptive = progress.getAdaptive();
+            if (adaptive != null) {
+                statsLabel.setText(String.format("Online: %d | WhiteList: %d | Window: %d | OK %d%% / Refused %d%% / Timeout %d%%",
+                    progress.getOnlineTotal(), progress.getWhitelistTotal(), adaptive.getWindow(),
+                    Math.round(adaptive.getSuccessRate() * 100), Math.round(adaptive.getRefusalRate() * 100),
+                    Math.round(adaptive.getTimeoutRate() * 100)));
+            } else {
+                statsLabel.setText(String.format("Online: %d | WhiteList: %d",
+                    progress.getOnlineTotal(), progress.getWhitelistTotal()));
+            }
+
+            if (progress.isSweepStage()) {
+                progressBar.setString(String.format("%sSweep %d / %d", prefix,
+                    progress.getScanned(), progress.getTotal()));
+                statusLabel.setText(String.format("%sLooking for open ports: %d found", prefix,
+                    progress.getOpenPorts()));
+                return;
+            }
 
             if (progress.isScreenshotStage()) {
                 progressBar.setString(String.format("%sScreenshots %d / %d", prefix,
@@ -615,7 +639,7 @@ public class ScannerGUI extends JFrame {
         });
     }
 
-    private void showRunComplete(List<String> ips, File txtFile, File csvFile, File jsonFile,
+    private void showRunComplete(TargetSource targets, File txtFile, File csvFile, File jsonFile,
                                  File screenshotFolder, String changeText,
                                  boolean monitoringEnabled, int runNumber) {
         SwingUtilities.invokeLater(() -> {
@@ -630,7 +654,7 @@ public class ScannerGUI extends JFrame {
 
             if (!monitoringEnabled) {
                 JOptionPane.showMessageDialog(this,
-                    "Scan completed!\n\nScanned " + ips.size() + " IP(s)"
+                    "Scan completed!\n\nScanned " + targets.size() + " target(s)"
                         + "\nTXT:\n" + txtFile.getAbsolutePath()
                         + "\n\nCSV:\n" + csvFile.getAbsolutePath()
                         + "\n\nJSON:\n" + jsonFile.getAbsolutePath()
@@ -641,9 +665,74 @@ public class ScannerGUI extends JFrame {
         });
     }
 
-    private boolean waitForNextMonitoringRun(int monitoringIntervalMinutes, int nextRunNumber) throws InterruptedException {
-        long totalMillis = monitoringIntervalMinutes * 60L * 1000L;
-        long endAt = System.currentTimeMillis() + totalMillis;
+    /**
+     * Polls the status of the known servers that are due, without a sweep, and
+     * folds the answers into the previous run's servers. Whitelist and screenshot
+     * are carried over from when each server was last checked in full.
+     *
+     * @return the servers online after the poll, or null if it was stopped
+     */
+    private ServerDiff.Index runStatusPoll(ServerDiff diff, MonitorSchedule schedule,
+                                           List<MonitorSchedule.Entry> dueEntries, ServerDiff.Index previousResults,
+                                           ScannerService.ScanSpeed speed, String checkUsername,
+                                           int runNumber) throws IOException, InterruptedException {
+        List<String> hosts = new ArrayList<>();
+        List<Integer> ports = new ArrayList<>();
+        for (MonitorSchedule.Entry entry : dueEntries) {
+            hosts.add(entry.getLast().getIp());
+            ports.add(entry.getLast().getPort());
+        }
+        List<ServerInfo> pollResults = Collections.emptyList();
+        if (!dueEntries.isEmpty()) {
+            ScannerService scanner = ScannerService.statusPoll(new EndpointList(hosts, ports), speed, checkUsername);
+            currentScanner = scanner;
+            scanner.scan(progress -> updateProgress(progress, true, runNumber));
+            currentScanner = null;
+            if (stopRequested) {
+                return null;
+            }
+            pollResults = scanner.getResultsSnapshot();
+        }
+
+        long now = System.currentTimeMillis();
+        ServerDiff.Index answered = diff.index(pollResults);
+        List<ServerInfo> polled = new ArrayList<>();
+        for (MonitorSchedule.Entry entry : dueEntries) {
+            polled.add(entry.getLast());
+        }
+        ServerDiff.Index polledIndex = diff.index(polled);
+        List<ServerInfo> currentResults = new ArrayList<>();
+        for (ServerInfo server : previousResults.servers()) {
+            if (!polledIndex.contains(diff.keyOf(server))) {
+                currentResults.add(server);
+            }
+        }
+        for (MonitorSchedule.Entry entry : dueEntries) {
+            ServerInfo last = entry.getLast();
+            ServerInfo current = answered.get(diff.keyOf(last));
+            if (current != null) {
+                current = current.withWhitelist(last.hasWhitelist()).withScreenshotPath(last.getScreenshotPath());
+                currentResults.add(current);
+            }
+            schedule.polled(entry, current, now);
+        }
+
+        ServerDiff.Index currentIndex = diff.index(currentResults);
+        String changeText = buildChangeSummary(diff, previousResults, currentIndex, runNumber, true)
+            + "\nStatus poll: " + answered.size() + " of " + dueEntries.size() + " server(s) answered"
+            + " | Hot: " + schedule.count(MonitorSchedule.Tier.HOT)
+            + " | Cold: " + schedule.count(MonitorSchedule.Tier.COLD);
+        SwingUtilities.invokeLater(() -> {
+            progressBar.setValue(100);
+            progressBar.setString("Run #" + runNumber + " Complete");
+            statusLabel.setText("Monitoring run #" + runNumber + " polled " + dueEntries.size() + " server(s)");
+            changesArea.setText(changeText);
+        });
+        return currentIndex;
+    }
+
+    private boolean waitForNextMonitoringRun(long endAt, int nextRunNumber) throws InterruptedException {
+        long totalMillis = Math.max(1L, endAt - System.currentTimeMillis());
 
         while (!stopRequested) {
             long remaining = endAt - System.currentTimeMillis();
@@ -668,11 +757,11 @@ public class ScannerGUI extends JFrame {
         return false;
     }
 
-    private String buildChangeSummary(Map<String, ServerInfo> previousResults,
-                                      List<ServerInfo> currentResults,
+    private String buildChangeSummary(ServerDiff diff,
+                                      ServerDiff.Index previousResults,
+                                      ServerDiff.Index currentResults,
                                       int runNumber,
                                       boolean monitoringEnabled) {
-        Map<String, ServerInfo> currentMap = toServerMap(currentResults);
         if (!monitoringEnabled) {
             return "Scan complete. Online servers: " + currentResults.size();
         }
@@ -686,25 +775,19 @@ public class ScannerGUI extends JFrame {
         List<String> removed = new ArrayList<>();
         List<String> changed = new ArrayList<>();
 
-        for (Map.Entry<String, ServerInfo> entry : currentMap.entrySet()) {
-            String key = entry.getKey();
-            ServerInfo current = entry.getValue();
-            ServerInfo previous = previousResults.get(key);
-            if (previous == null) {
-                added.add("+ " + key + " [" + current.getVersion() + "] " + current.getPlayersOnline() + "/" + current.getPlayersMax());
-            } else {
-                String diff = describeServerChange(previous, current);
-                if (!diff.isEmpty()) {
-                    changed.add("* " + key + " " + diff);
-                }
-            }
-        }
-
-        for (String key : previousResults.keySet()) {
-            if (!currentMap.containsKey(key)) {
-                removed.add("- " + key);
+        diff.diff(previousResults, currentResults, change -> {
+            switch (change.getType()) {
+                case ADDED:
+                    added.add(change.describe());
+                    break;
+                case REMOVED:
+                    removed.add(change.describe());
+                    break;
+                default:
+                    changed.add(change.describe());
+                    break;
             }
-        }
+        });
 
         StringBuilder summary = new StringBuilder();
         summary.append("Run #").append(runNumber)
@@ -734,38 +817,6 @@ public class ScannerGUI extends JFrame {
         }
     }
 
-    private static Map<String, ServerInfo> toServerMap(List<ServerInfo> servers) {
-        Map<String, ServerInfo> map = new TreeMap<>();
-        for (ServerInfo server : servers) {
-            map.put(serverKey(server), server);
-        }
-        return map;
-    }
-
-    private static String serverKey(ServerInfo server) {
-        return server.getIp() + ":" + server.getPort();
-    }
-
-    private static String describeServerChange(ServerInfo previous, ServerInfo current) {
-        List<String> changes = new ArrayList<>();
-        if (!Objects.equals(previous.getVersion(), current.getVersion())) {
-            changes.add("version " + previous.getVersion() + " -> " + current.getVersion());
-        }
-        if (previous.getPlayersOnline() != current.getPlayersOnline()
-                || previous.getPlayersMax() != current.getPlayersMax()) {
-            changes.add("players " + previous.getPlayersOnline() + "/" + previous.getPlayersMax()
-                + " -> " + current.getPlayersOnline() + "/" + current.getPlayersMax());
-        }
-        if (previous.hasWhitelist() != current.hasWhitelist()) {
-            changes.add("WL " + (previous.hasWhitelist() ? "YES" : "NO")
-                + " -> " + (current.hasWhitelist() ? "YES" : "NO"));
-        }
-        if (!Objects.equals(previous.getDisplayMotd(), current.getDisplayMotd())) {
-            changes.add("MOTD changed");
-        }
-        return String.join("; ", changes);
-    }
-    
     private void cancelScan() {
         stopRequested = true;
         ScannerService scanner = currentScanner;
@@ -790,9 +841,10 @@ public class ScannerGUI extends JFrame {
     }
     
     private void setInputsEnabled(boolean enabled) {
-        ipArea.setEnabled(enabled);
-        portField.setEnabled(enabled);
-        amountField.setEnabled(enabled);
+        ipArea.setEnabled(enabled && inventory == null);
+        portField.setEnabled(enabled && inventory == null);
+        amountField.setEnabled(enabled && inventory == null);
+        inventoryButton.setEnabled(enabled);
         usernameField.setEnabled(enabled);
         screenshotsCheckBox.setEnabled(true);
         screenshotWaitField.setEnabled(enabled);
@@ -849,6 +901,7 @@ public class ScannerGUI extends JFrame {
 
     private void refreshButtonStyles() {
         stylePrimaryButton(scanButton);
+        styleSecondaryButton(inventoryButton);
         styleSecondaryButton(openResultsButton);
         styleSecondaryButton(openScreenshotsButton);
         styleDangerButton(cleanOutputButton);
@@ -871,6 +924,32 @@ public class ScannerGUI extends JFrame {
         }
     }
 
+    private void toggleInventory() {
+        if (inventory != null) {
+            inventory = null;
+            inventoryButton.setText("Load Inventory...");
+            formatLabel.setText(IP_FORMAT_HINT);
+            setInputsEnabled(true);
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser(AppPaths.baseDir());
+        chooser.setDialogTitle("Open host:port inventory");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            inventory = InventoryFile.open(chooser.getSelectedFile());
+        } catch (IOException e) {
+            showError("Could not load inventory: " + e.getMessage());
+            return;
+        }
+        inventoryButton.setText("Clear Inventory");
+        formatLabel.setText("Inventory: " + inventory.getFile().getName() + " (" + inventory.size()
+            + " entries, " + inventory.ports().size() + " port(s))");
+        setInputsEnabled(true);
+    }
+
     private void cleanOutput() {
         if (workerThread != null && workerThread.isAlive()) {
             showError("Stop the scan before cleaning output");
@@ -1,72 +1,144 @@
 import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 public class ScannerService {
-    private final List<String> targetIPs;
-    private final int startPort;
-    private final int limit;
+    // Below this many ports per host the liveness probes would cost about as much as the sweep
+    private static final int LIVENESS_MIN_PORTS = 8;
+    private static final int LIVENESS_PROBES = 3;
+    private static final int ADAPTIVE_INITIAL_WINDOW = 64;
+    private static final int ADAPTIVE_MIN_WINDOW = 16;
+    private static final int SCREENSHOT_WORKERS = 2;
+    // Captures take seconds each; room for a scan's worth of servers before they hold up the whitelist stage
+    private static final int SCREENSHOT_QUEUE = 1024;
+    private static final int SINK_QUEUE = 256;
+    private static final int RETRY_MAX_ATTEMPTS = 2;
+    private static final long RETRY_BASE_DELAY_MS = 1000;
+    private static final long RETRY_MAX_DELAY_MS = 8000;
+    // Retries of the sweep may add up to 2% to it; status probes only run on open ports
+    private static final int CONNECT_RETRY_SHARE = 50;
+    private static final int MIN_CONNECT_RETRIES = 256;
+    private static final int STATUS_RETRIES = 256;
+    // Timeouts held back until their host is known to answer; past this many they are dropped
+    private static final int UNCONFIRMED_TIMEOUTS = 1 << 20;
+
+    private final TargetSource source;
     private final ScanSpeed scanSpeed;
     private final String checkUsername;
+    private final MinecraftProtocol.WhitelistPolicy whitelistPolicy;
     private final boolean screenshotsEnabled;
     private final int screenshotWaitMs;
+    private final boolean statusOnly;
     private final MinecraftScreenshotService screenshotService;
     private final File screenshotOutputDir;
-    private final ExecutorService executor;
-    private final ExecutorService screenshotExecutor;
-    private final CompletionService<Void> screenshotCompletionService;
+    private final NioProbeEngine probeEngine;
+    private final CancellationRegistry cancellation;
+    private final Semaphore inFlight;
+    private final int inFlightLimit;
+    private final AimdController adaptive;
+    private final RateController rateController;
+    private final int statusWorkers;
+    private final int whitelistWorkers;
+    private final List<PipelineStage<?>> stages;
+    private final RetryQueue connectRetries;
+    private final RetryQueue statusRetries;
+    private final Set<Long> answeringHosts;
+    private final TimeoutLog unconfirmedTimeouts;
+    private final File liveResultsFile;
+    private volatile PrintWriter liveResults;
+    private volatile boolean reportScreenshots;
     private final ConcurrentLinkedQueue<ServerInfo> results;
-    private final ConcurrentLinkedQueue<Future<?>> screenshotFutures;
     private final AtomicInteger scannedCount;
     private final AtomicInteger onlineCount;
     private final AtomicInteger whitelistCount;
     private volatile boolean cancelled;
     
+    /**
+     * Presets as new connections per second: a cap per target host and a global
+     * cap across all of them, plus pool and in-flight limits. ADAPTIVE uses its
+     * in-flight limit as a ceiling and lets {@link AimdController} find the window.
+     */
     public enum ScanSpeed {
-        MEDIUM(500, 20),
-        FAST(125, 50),
-        VERY_FAST(50, 100),
-        DANGEROUS(10, 200);
+        MEDIUM(160, 40, 20, 200, 2),
+        FAST(1600, 400, 50, 500, 3),
+        VERY_FAST(8000, 2000, 100, 1000, 4),
+        DANGEROUS(40000, 10000, 200, 4000, 6),
+        ADAPTIVE(40000, 10000, 200, 4000, 4);
         
-        private final long delayMs;
+        private final int connectionsPerSecond;
+        private final int perHostPerSecond;
         private final int threadPoolSize;
+        private final int maxInFlight;
+        private final int whitelistRaceWidth;
         
-        ScanSpeed(long delayMs, int threadPoolSize) {
-            this.delayMs = delayMs;
+        ScanSpeed(int connectionsPerSecond, int perHostPerSecond, int threadPoolSize, int maxInFlight,
+                  int whitelistRaceWidth) {
+            this.connectionsPerSecond = connectionsPerSecond;
+            this.perHostPerSecond = perHostPerSecond;
             this.threadPoolSize = threadPoolSize;
+            this.maxInFlight = maxInFlight;
+            this.whitelistRaceWidth = whitelistRaceWidth;
         }
         
-        public long getDelayMs() { return delayMs; }
+        public int getConnectionsPerSecond() { return connectionsPerSecond; }
+        public int getPerHostPerSecond() { return perHostPerSecond; }
         public int getThreadPoolSize() { return threadPoolSize; }
+        public int getMaxInFlight() { return maxInFlight; }
+        public int getWhitelistRaceWidth() { return whitelistRaceWidth; }
+        public boolean isAdaptive() { return this == ADAPTIVE; }
     }
     
-    public ScannerService(List<String> targetIPs, int startPort, int limit, ScanSpeed scanSpeed) {
-        this(targetIPs, startPort, limit, scanSpeed, "MCScanner");
+    public ScannerService(TargetSet targets, int startPort, int limit, ScanSpeed scanSpeed) throws IOException {
+        this(targets, startPort, limit, scanSpeed, "MCScanner");
     }
 
-    public ScannerService(List<String> targetIPs, int startPort, int limit, ScanSpeed scanSpeed, String checkUsername) {
-        this(targetIPs, startPort, limit, scanSpeed, checkUsername, false, 8000);
+    public ScannerService(TargetSet targets, int startPort, int limit, ScanSpeed scanSpeed,
+                          String checkUsername) throws IOException {
+        this(targets, startPort, limit, scanSpeed, checkUsername, false, 8000);
     }
 
-    public ScannerService(List<String> targetIPs, int startPort, int limit, ScanSpeed scanSpeed,
-                          String checkUsername, boolean screenshotsEnabled, int screenshotWaitMs) {
-        if (targetIPs == null || targetIPs.isEmpty()) {
-            throw new IllegalArgumentException("At least one target IP is required");
-        }
-        if (startPort < 1 || startPort > 65535) {
-            throw new IllegalArgumentException("Start port must be between 1 and 65535");
-        }
-        if (limit < 1) {
-            throw new IllegalArgumentException("Scan amount must be greater than 0");
-        }
-        if ((long) startPort + limit - 1 > 65535) {
-            throw new IllegalArgumentException("Port range must end at 65535 or lower");
+    public ScannerService(TargetSet targets, int startPort, int limit, ScanSpeed scanSpeed,
+                          String checkUsername, boolean screenshotsEnabled, int screenshotWaitMs) throws IOException {
+        this(targets, PortSet.range(startPort, limit), scanSpeed, checkUsername, screenshotsEnabled, screenshotWaitMs);
+    }
+
+    public ScannerService(TargetSet targets, PortSet ports, ScanSpeed scanSpeed,
+                          String checkUsername, boolean screenshotsEnabled, int screenshotWaitMs) throws IOException {
+        this(gridOf(targets, ports), scanSpeed, checkUsername, screenshotsEnabled, screenshotWaitMs);
+    }
+
+    public ScannerService(TargetSource source, ScanSpeed scanSpeed,
+                          String checkUsername, boolean screenshotsEnabled, int screenshotWaitMs) throws IOException {
+        this(source, scanSpeed, checkUsername, screenshotsEnabled, screenshotWaitMs, false);
+    }
+
+    /**
+     * A scan that only asks every entry of {@code endpoints} for its status: no
+     * sweep, no whitelist check, no screenshots and no live results file. For
+     * re-checking servers already known to be there.
+     */
+    public static ScannerService statusPoll(TargetSource endpoints, ScanSpeed scanSpeed,
+                                            String checkUsername) throws IOException {
+        return new ScannerService(endpoints, scanSpeed, checkUsername, false, 8000, true);
+    }
+
+    private ScannerService(TargetSource source, ScanSpeed scanSpeed, String checkUsername,
+                           boolean screenshotsEnabled, int screenshotWaitMs, boolean statusOnly) throws IOException {
+        if (source == null || source.size() == 0) {
+            throw new IllegalArgumentException("At least one target is required");
         }
         if (scanSpeed == null) {
             throw new IllegalArgumentException("Scan speed is required");
@@ -78,26 +150,52 @@ public class ScannerService {
             throw new IllegalArgumentException("Screenshot wait must be between 1000 and 30000 ms");
         }
 
-        this.targetIPs = targetIPs;
-        this.startPort = startPort;
-        this.limit = limit;
+        this.source = source;
         this.scanSpeed = scanSpeed;
         this.checkUsername = checkUsername;
+        this.whitelistPolicy = new MinecraftProtocol.WhitelistPolicy(scanSpeed.whitelistRaceWidth,
+            MinecraftProtocol.WhitelistPolicy.DEFAULT.getMaxAttempts(),
+            MinecraftProtocol.WhitelistPolicy.DEFAULT.getDeadlineMs());
         this.screenshotsEnabled = true;
         this.screenshotWaitMs = screenshotWaitMs;
+        this.statusOnly = statusOnly;
         String scanRunId = new SimpleDateFormat("yyyy-MM-dd_HHmmss").format(new Date());
         this.screenshotOutputDir = new File(AppPaths.screenshotsDir(), "scan_" + scanRunId);
-        this.screenshotOutputDir.mkdirs();
-        this.screenshotService = new MinecraftScreenshotService(AppPaths.baseDir(), screenshotOutputDir, screenshotWaitMs);
+        if (!statusOnly) {
+            this.screenshotOutputDir.mkdirs();
+        }
+        this.cancellation = new CancellationRegistry();
+        this.screenshotService = new MinecraftScreenshotService(AppPaths.baseDir(), screenshotOutputDir, screenshotWaitMs,
+            cancellation);
         
-        // Increase thread pool for multiple IPs
-        int threadPoolSize = scanSpeed.threadPoolSize * Math.min(targetIPs.size(), 4);
-        this.executor = Executors.newFixedThreadPool(threadPoolSize);
-        this.screenshotExecutor = Executors.newFixedThreadPool(2);
-        this.screenshotCompletionService = new ExecutorCompletionService<>(screenshotExecutor);
+        // Status probes run on the selector threads; the status stage only waits for and parses them
+        this.probeEngine = new NioProbeEngine(NioProbeEngine.defaultLoopCount());
+        cancellation.register(probeEngine);
+        // Entries per distinct port approximates the host count for grid and inventory alike
+        int hostFactor = (int) Math.max(1, Math.min(source.size() / source.ports().size(), 4));
+        this.inFlightLimit = scanSpeed.maxInFlight * hostFactor;
+        if (scanSpeed.isAdaptive()) {
+            this.adaptive = new AimdController(ADAPTIVE_INITIAL_WINDOW, ADAPTIVE_MIN_WINDOW, inFlightLimit);
+            this.inFlight = adaptive.permits();
+        } else {
+            this.adaptive = null;
+            this.inFlight = new Semaphore(inFlightLimit);
+        }
+        this.rateController = new RateController(scanSpeed.connectionsPerSecond, scanSpeed.perHostPerSecond);
+        // Status workers each hold one probe; whitelist workers each race a few logins of their own
+        this.statusWorkers = scanSpeed.threadPoolSize * hostFactor;
+        this.whitelistWorkers = Math.max(4, scanSpeed.threadPoolSize / 5) * hostFactor;
+        this.stages = new CopyOnWriteArrayList<>();
+        int connectRetryBudget = (int) Math.min(Integer.MAX_VALUE,
+            Math.max(MIN_CONNECT_RETRIES, source.size() / CONNECT_RETRY_SHARE));
+        this.connectRetries = new RetryQueue(connectRetryBudget, RETRY_MAX_ATTEMPTS,
+            RETRY_BASE_DELAY_MS, RETRY_MAX_DELAY_MS);
+        this.statusRetries = new RetryQueue(STATUS_RETRIES, RETRY_MAX_ATTEMPTS, RETRY_BASE_DELAY_MS, RETRY_MAX_DELAY_MS);
+        this.answeringHosts = ConcurrentHashMap.newKeySet();
+        this.unconfirmedTimeouts = new TimeoutLog(UNCONFIRMED_TIMEOUTS);
+        this.liveResultsFile = new File(AppPaths.resultsDir(), "MCScanner_Live_" + scanRunId + ".jsonl");
         
         this.results = new ConcurrentLinkedQueue<>();
-        this.screenshotFutures = new ConcurrentLinkedQueue<>();
         this.scannedCount = new AtomicInteger(0);
         this.onlineCount = new AtomicInteger(0);
         this.whitelistCount = new AtomicInteger(0);
@@ -105,160 +203,661 @@ public class ScannerService {
     }
     
     public void scan(Consumer<ScanProgress> progressCallback) throws InterruptedException {
-        int totalScans = targetIPs.size() * limit;
-        CountDownLatch latch = new CountDownLatch(totalScans);
         long startTime = System.currentTimeMillis();
+        System.out.println("[Scanner] Workers: " + (WorkerThreads.isVirtual() ? "virtual threads" : "platform thread pool"));
+        System.out.println("[Connections] " + ConnectionManager.shared().describe());
         
-        // Scan all IPs in parallel, not sequentially!
-        for (String ip : targetIPs) {
-            if (cancelled) break;
-            
-            // Each IP gets scanned in parallel
-            for (int i = 0; i < limit; i++) {
-                if (cancelled) break;
-                
-                final int port = startPort + i;
-                final String targetIP = ip;
+        Collection<String> hostNames = source.hostNames();
+        if (!hostNames.isEmpty()) {
+            long resolveStart = System.currentTimeMillis();
+            HostResolver.shared().preresolve(hostNames, source.ports().contains(HostResolver.DEFAULT_PORT));
+            System.out.println("[Resolver] " + hostNames.size() + " host name(s) resolved in "
+                + (System.currentTimeMillis() - resolveStart) + "ms");
+        }
+
+        if (statusOnly) {
+            pollStatus(progressCallback, startTime);
+            return;
+        }
+
+        Set<Long> downHosts = findDownHosts(null);
+        if (!downHosts.isEmpty()) {
+            System.out.println("[Liveness] " + downHosts.size() + " host(s) did not answer, their ports are deferred");
+        }
+        // Only hosts with an open port get an entry, kept in target order for the status stage
+        Map<Long, BitSet> openPorts = new ConcurrentSkipListMap<>();
+        sweepOpenPorts(progressCallback, hostKey -> !downHosts.contains(hostKey), openPorts);
+        if (!downHosts.isEmpty() && !cancelled) {
+            // One more chance for hosts that were rebooting or briefly unreachable
+            Set<Long> stillDown = findDownHosts(downHosts);
+            downHosts.removeAll(stillDown);
+            if (!downHosts.isEmpty()) {
+                System.out.println("[Liveness] " + downHosts.size() + " deferred host(s) are back, sweeping them");
+                sweepOpenPorts(progressCallback, downHosts::contains, openPorts);
+            }
+        }
+        retryTimedOutConnects(openPorts);
+        int totalScans = 0;
+        for (BitSet ports : openPorts.values()) {
+            totalScans += ports.cardinality();
+        }
+        System.out.println("[Sweep] " + totalScans + " open port(s) found in "
+            + (System.currentTimeMillis() - startTime) + "ms");
+        
+        final int totalProbes = totalScans;
+        PipelineStage<OpenPort> statusStage = startPipeline(progressCallback, totalProbes);
+        
+        // Only ports that accepted a connection get the Minecraft status/ping/whitelist probe
+        try {
+            feed:
+            for (Map.Entry<Long, BitSet> entry : openPorts.entrySet()) {
+                BitSet hostPorts = entry.getValue();
+                for (int open = hostPorts.nextSetBit(0); open >= 0; open = hostPorts.nextSetBit(open + 1)) {
+                    if (cancelled || !statusStage.put(new OpenPort(entry.getKey(), open, 0))) {
+                        break feed;
+                    }
+                }
+            }
+            retryTimedOutStatus(statusStage);
+            finishPipeline(progressCallback, totalProbes);
+        } finally {
+            // Only does something when the feed stopped early; finished stages have no workers left
+            for (PipelineStage<?> stage : stages) {
+                stage.cancel();
+            }
+            probeEngine.close();
+            closeLiveResults();
+        }
+        for (PipelineStage<?> stage : stages) {
+            System.out.println("[Pipeline] " + stage.snapshot());
+        }
+        ProtocolCache.shared().save();
+        ProtocolStats.shared().save();
+        
+        long totalTime = System.currentTimeMillis() - startTime;
+        System.out.println("Scan completed in " + totalTime + "ms");
+    }
+
+    /**
+     * The whole scan in status-only mode: every entry goes straight to the status
+     * stage, and what answers goes straight to the sink.
+     */
+    private void pollStatus(Consumer<ScanProgress> progressCallback, long startTime) throws InterruptedException {
+        final int totalProbes = (int) Math.min(Integer.MAX_VALUE, source.size());
+        PipelineStage<OpenPort> statusStage = startPipeline(progressCallback, totalProbes);
+        try (TargetSource.Cursor cursor = source.cursor()) {
+            while (cursor.next()) {
+                if (cancelled || !statusStage.put(new OpenPort(cursor.hostKey(), cursor.port(), 0))) {
+                    break;
+                }
+            }
+            retryTimedOutStatus(statusStage);
+            finishPipeline(progressCallback, totalProbes);
+        } catch (IOException e) {
+            System.err.println("[Poll] Target source failed: " + e.getMessage());
+        } finally {
+            for (PipelineStage<?> stage : stages) {
+                stage.cancel();
+            }
+            probeEngine.close();
+        }
+        System.out.println("[Poll] " + onlineCount.get() + " of " + totalProbes + " endpoint(s) answered in "
+            + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Connects to a few of the scan's ports on every host before the sweep. A host
+     * that accepts or refuses any of them is up; one where every attempt times out
+     * or is unreachable is reported down. Sources that cannot list their hosts, or
+     * scans with only a few ports per host, skip the check.
+     *
+     * @param only hosts to check, or null for all of them
+     * @return keys of the hosts that look down
+     */
+    private Set<Long> findDownHosts(Set<Long> only) throws InterruptedException {
+        Set<Long> down = ConcurrentHashMap.newKeySet();
+        PortSet ports = source.ports();
+        if (ports.size() < LIVENESS_MIN_PORTS) {
+            return down;
+        }
+        // Spread the probes over the set in case a firewall only drops part of it
+        int[] probePorts = new int[LIVENESS_PROBES];
+        probePorts[0] = ports.first();
+        probePorts[1] = ports.next(ports.first() + (ports.last() - ports.first()) / 2);
+        probePorts[2] = ports.last();
+
+        try (TargetSource.Cursor hosts = source.hosts()) {
+            if (hosts == null) {
+                return down;
+            }
+            while (hosts.next()) {
+                long hostKey = hosts.hostKey();
+                if (only != null && !only.contains(hostKey)) {
+                    continue;
+                }
+                InetAddress address;
+                try {
+                    address = hosts.address();
+                } catch (UnknownHostException e) {
+                    down.add(hostKey);
+                    continue;
+                }
+
+                AtomicInteger pending = new AtomicInteger(LIVENESS_PROBES);
+                AtomicBoolean up = new AtomicBoolean();
+                for (int port : probePorts) {
+                    if (cancelled || !acquireProbeSlot(hostKey)) {
+                        return down;
+                    }
+                    probeEngine.probeConnect(address, port, source.hostText(hostKey)).whenComplete((result, error) -> {
+                        try {
+                            recordConnect(hostKey, result);
+                            NioProbeEngine.ConnectOutcome outcome = result != null ? result.getOutcome() : null;
+                            if (outcome == NioProbeEngine.ConnectOutcome.OPEN
+                                    || outcome == NioProbeEngine.ConnectOutcome.REFUSED) {
+                                up.set(true);
+                                answeringHosts.add(hostKey);
+                            }
+                            if (pending.decrementAndGet() == 0 && !up.get()) {
+                                down.add(hostKey);
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Liveness] Target source failed: " + e.getMessage());
+        } finally {
+            awaitProbesDone();
+        }
+        return down;
+    }
+
+    /**
+     * First stage: plain TCP connects at full in-flight concurrency. Each host keeps
+     * a bitset of its open port numbers in {@code openPorts}. Targets are pulled one at
+     * a time as slots free up, so nothing is queued ahead of the in-flight limit.
+     */
+    private void sweepOpenPorts(Consumer<ScanProgress> progressCallback, LongPredicate include,
+                                Map<Long, BitSet> openPorts) throws InterruptedException {
+        int totalConnects = (int) Math.min(Integer.MAX_VALUE, source.size());
+        AtomicInteger sweptCount = new AtomicInteger(0);
+        AtomicInteger openCount = new AtomicInteger(0);
+        
+        try (TargetSource.Cursor cursor = source.cursor()) {
+            while (cursor.next()) {
+                long hostKey = cursor.hostKey();
+                if (!include.test(hostKey)) {
+                    sweptCount.incrementAndGet();
+                    continue;
+                }
+                if (cancelled || !acquireProbeSlot(hostKey)) {
+                    break;
+                }
                 
-                executor.submit(() -> {
+                final int port = cursor.port();
+                String hostName = cursor.hostName();
+                InetSocketAddress endpoint;
+                if (hostName != null) {
+                    // Names go where a client would connect, SRV record included
+                    endpoint = HostResolver.shared().endpoint(hostName, port);
+                } else {
                     try {
-                        if (cancelled) {
-                            return;
-                        }
-                        
-                        ServerInfo info = MinecraftProtocol.queryServer(targetIP, port, checkUsername);
-                        
-                        if (cancelled) {
-                            return;
-                        }
-                        
-                        if (info.isOnline()) {
-                            if (screenshotsEnabled && screenshotService != null) {
-                                queueScreenshotCapture(info);
+                        endpoint = new InetSocketAddress(cursor.address(), port);
+                    } catch (UnknownHostException e) {
+                        endpoint = null;
+                    }
+                }
+                CompletableFuture<NioProbeEngine.ConnectResult> connect = endpoint != null && !endpoint.isUnresolved()
+                    ? probeEngine.probeConnect(endpoint, source.hostText(hostKey))
+                    : CompletableFuture.completedFuture(null);
+                connect.whenComplete((result, error) -> {
+                    try {
+                        recordConnect(hostKey, result);
+                        if (result != null && result.getOutcome() == NioProbeEngine.ConnectOutcome.TIMEOUT) {
+                            // Only hosts that answer are retried, so dead ones must not spend the budget
+                            if (answeringHosts.contains(hostKey)) {
+                                connectRetries.offer(hostKey, port, 1);
                             } else {
-                                results.add(info);
+                                unconfirmedTimeouts.add(hostKey, port);
                             }
-
-                            onlineCount.incrementAndGet();
-                            if (info.hasWhitelist()) {
-                                whitelistCount.incrementAndGet();
+                        }
+                        int open = openCount.get();
+                        if (result != null && result.isOpen()) {
+                            BitSet hostPorts = openPorts.computeIfAbsent(hostKey, key -> new BitSet());
+                            synchronized (hostPorts) {
+                                hostPorts.set(port);
                             }
+                            open = openCount.incrementAndGet();
                         }
                         
-                        int scanned = scannedCount.incrementAndGet();
+                        int swept = sweptCount.incrementAndGet();
                         if (progressCallback != null && !cancelled) {
-                            progressCallback.accept(new ScanProgress(scanned, totalScans, info, 
-                                onlineCount.get(), whitelistCount.get()));
-                        }
-                        
-                    } catch (Exception e) {
-                        if (!cancelled) {
-                            System.err.println("Error: " + targetIP + ":" + port + " - " + e.getMessage());
+                            progressCallback.accept(withLiveRates(ScanProgress.sweep(swept, totalConnects, open)));
                         }
                     } finally {
-                        applyWorkerDelay();
-                        latch.countDown();
+                        inFlight.release();
                     }
                 });
             }
+        } catch (IOException e) {
+            System.err.println("[Sweep] Target source failed: " + e.getMessage());
         }
         
-        if (!cancelled) {
-            latch.await();
-        } else {
-            latch.await(500, TimeUnit.MILLISECONDS);
+        awaitProbesDone();
+    }
+
+    /**
+     * Second try for connects that timed out in the sweep, once the sweep is done so
+     * its throughput is untouched. Only hosts that answered on some other port are
+     * retried: a lone timeout there is more likely a dropped SYN than a filtered port.
+     * Ports that open now join {@code openPorts}.
+     */
+    private void retryTimedOutConnects(Map<Long, BitSet> openPorts) throws InterruptedException {
+        // Hosts that answered later in the sweep than their timeout get their retries now
+        unconfirmedTimeouts.drain((hostKey, port) -> {
+            if (answeringHosts.contains(hostKey)) {
+                connectRetries.offer(hostKey, port, 1);
+            }
+        });
+        if (connectRetries.isEmpty() || cancelled) {
+            return;
         }
-        
-        executor.shutdownNow();
-        executor.awaitTermination(1, TimeUnit.SECONDS);
-        if (!cancelled) {
-            waitForScreenshotCaptures(progressCallback, totalScans);
+        int queued = connectRetries.size();
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger recovered = new AtomicInteger();
+        while (!cancelled) {
+            RetryQueue.Entry retry = connectRetries.poll(100);
+            if (retry == null) {
+                if (pending.get() == 0 && connectRetries.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            long hostKey = retry.getHostKey();
+            int port = retry.getPort();
+            if (!answeringHosts.contains(hostKey)) {
+                continue;
+            }
+            String host = source.hostText(hostKey);
+            InetSocketAddress endpoint = HostResolver.shared().endpoint(host, port);
+            if (endpoint.isUnresolved() || !acquireProbeSlot(hostKey)) {
+                continue;
+            }
+            pending.incrementAndGet();
+            probeEngine.probeConnect(endpoint, host).whenComplete((result, error) -> {
+                try {
+                    recordConnect(hostKey, result);
+                    if (result != null && result.isOpen()) {
+                        BitSet hostPorts = openPorts.computeIfAbsent(hostKey, key -> new BitSet());
+                        synchronized (hostPorts) {
+                            hostPorts.set(port);
+                        }
+                        recovered.incrementAndGet();
+                    } else if (result != null && result.getOutcome() == NioProbeEngine.ConnectOutcome.TIMEOUT) {
+                        connectRetries.offer(hostKey, port, retry.getFailures() + 1);
+                    }
+                } finally {
+                    inFlight.release();
+                    pending.decrementAndGet();
+                }
+            });
         }
-        screenshotExecutor.shutdownNow();
-        screenshotExecutor.awaitTermination(1, TimeUnit.SECONDS);
-        
-        long totalTime = System.currentTimeMillis() - startTime;
-        System.out.println("Scan completed in " + totalTime + "ms");
+        awaitProbesDone();
+        System.out.println("[Retry] " + queued + " timed-out connect(s) queued, " + recovered.get()
+            + " port(s) open on retry, " + connectRetries.getRejected() + " given up (budget "
+            + connectRetries.getScheduled() + " used)");
     }
 
-    private void queueScreenshotCapture(ServerInfo info) {
-        Future<?> future = screenshotCompletionService.submit(() -> {
-            if (cancelled) {
-                return null;
+    /**
+     * Feeds status probes that timed out back into the status stage as they come due,
+     * behind the first pass, until none are left and the stage has gone quiet.
+     */
+    private void retryTimedOutStatus(PipelineStage<OpenPort> statusStage) throws InterruptedException {
+        while (!cancelled) {
+            RetryQueue.Entry retry = statusRetries.poll(100);
+            if (retry != null) {
+                if (!statusStage.put(new OpenPort(retry.getHostKey(), retry.getPort(), retry.getFailures()))) {
+                    return;
+                }
+            } else if (statusStage.isIdle() && statusRetries.isEmpty()) {
+                break;
             }
+        }
+        if (statusRetries.getScheduled() > 0) {
+            System.out.println("[Retry] " + statusRetries.getScheduled() + " status probe(s) retried, "
+                + statusRetries.getRejected() + " given up");
+        }
+    }
 
-            ServerInfo result = info;
-            String screenshotPath = screenshotService.capture(info, checkUsername);
-            if (!screenshotPath.isEmpty()) {
-                result = info.withScreenshotPath(screenshotPath);
+    /**
+     * Blocks until every dispatched probe has handed its slot back. After a cancel,
+     * probes still winding down in the closed engine may not release in time, so the wait is capped.
+     */
+    private void awaitProbesDone() throws InterruptedException {
+        long cancelDeadline = 0;
+        int limit;
+        // The adaptive window only moves when a probe finishes, so it holds still once all are back
+        while (!inFlight.tryAcquire(limit = currentLimit(), 100, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+                long now = System.currentTimeMillis();
+                if (cancelDeadline == 0) {
+                    cancelDeadline = now + 500;
+                } else if (now >= cancelDeadline) {
+                    return;
+                }
             }
-            results.add(result);
-            return null;
-        });
-        screenshotFutures.add(future);
+        }
+        inFlight.release(limit);
     }
 
-    private void waitForScreenshotCaptures(Consumer<ScanProgress> progressCallback, int totalScans) throws InterruptedException {
-        int screenshotTotal = screenshotFutures.size();
-        if (screenshotTotal == 0) {
+    private int currentLimit() {
+        return adaptive != null ? adaptive.window() : inFlightLimit;
+    }
+
+    private void recordConnect(long host, NioProbeEngine.ConnectResult result) {
+        if (result != null && (result.isOpen() || result.getOutcome() == NioProbeEngine.ConnectOutcome.REFUSED)) {
+            answeringHosts.add(host);
+        }
+        if (adaptive == null || result == null) {
             return;
         }
+        switch (result.getOutcome()) {
+            case OPEN:
+                adaptive.record(host, AimdController.Outcome.SUCCESS);
+                break;
+            case REFUSED:
+                adaptive.record(host, AimdController.Outcome.REFUSED);
+                break;
+            case TIMEOUT:
+                adaptive.record(host, AimdController.Outcome.TIMEOUT);
+                break;
+            default:
+                // Unresolvable or unreachable hosts say nothing about congestion
+                break;
+        }
+    }
 
-        int completed = 0;
-        notifyScreenshotProgress(progressCallback, completed, screenshotTotal, totalScans);
+    private void recordStatus(long host, MinecraftProtocol.StatusResponse status, Throwable error) {
+        if (adaptive == null) {
+            return;
+        }
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (status != null) {
+            adaptive.record(host, AimdController.Outcome.SUCCESS);
+        } else if (cause instanceof SocketTimeoutException) {
+            adaptive.record(host, AimdController.Outcome.TIMEOUT);
+        }
+    }
 
-        for (int i = 0; i < screenshotTotal; i++) {
-            if (cancelled) {
-                break;
+    private ScanProgress withLiveRates(ScanProgress progress) {
+        return adaptive != null ? progress.withAdaptive(adaptive.snapshot()) : progress;
+    }
+
+    /**
+     * Waits for an in-flight slot, for socket headroom on this machine and then for
+     * the host's turn under the rate caps.
+     * Returns false once the scan is cancelled.
+     */
+    private boolean acquireProbeSlot(long host) throws InterruptedException {
+        boolean slot = false;
+        while (!cancelled) {
+            if (!slot) {
+                slot = inFlight.tryAcquire(100, TimeUnit.MILLISECONDS);
+                continue;
+            }
+            if (!ConnectionManager.shared().hasHeadroom()) {
+                // Short of local ports or descriptors; wait for closes and TIME_WAIT to catch up
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+                if (Thread.interrupted()) {
+                    inFlight.release();
+                    throw new InterruptedException();
+                }
+                continue;
+            }
+            long waitNanos = rateController.tryAcquire(host);
+            if (waitNanos == 0) {
+                return true;
+            }
+            LockSupport.parkNanos(Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(100)));
+            if (Thread.interrupted()) {
+                inFlight.release();
+                throw new InterruptedException();
             }
+        }
+        if (slot) {
+            inFlight.release();
+        }
+        return false;
+    }
 
-            try {
-                Future<Void> future = screenshotCompletionService.take();
-                future.get();
-            } catch (ExecutionException e) {
-                Throwable cause = e.getCause();
-                System.err.println("[Screenshot] Capture worker failed: " + (cause != null ? cause.getMessage() : e.getMessage()));
-            } catch (CancellationException ignored) {
-                // Scanner is stopping.
+    /**
+     * Waits for the host's turn under the rate caps, for connections that are not
+     * probes (fake logins, the screenshot bot) and so hold no in-flight slot.
+     */
+    private void awaitRateTurn(long host) throws InterruptedException {
+        long waitNanos;
+        while (!cancelled && (waitNanos = rateController.tryAcquire(host)) > 0) {
+            LockSupport.parkNanos(Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(100)));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
             }
+        }
+    }
 
-            completed++;
-            notifyScreenshotProgress(progressCallback, completed, screenshotTotal, totalScans);
+    /**
+     * Starts the stages behind the sweep: status, whitelist, screenshot and sink, each
+     * with its own workers and a bounded queue. A full queue stalls only the stage in
+     * front of it, so a slow whitelist search backs up into the status stage instead
+     * of taking its threads, and results reach the sink as soon as they are final.
+     *
+     * @return the status stage, which takes the open ports
+     */
+    private PipelineStage<OpenPort> startPipeline(Consumer<ScanProgress> progressCallback, int totalProbes) {
+        if (!statusOnly) {
+            openLiveResults();
         }
+        PipelineStage<ServerInfo> sink = new PipelineStage<>("sink", 1, SINK_QUEUE, this::store);
+        PipelineStage<FoundServer> screenshots = new PipelineStage<>("screenshot", SCREENSHOT_WORKERS, SCREENSHOT_QUEUE,
+            found -> {
+                if (cancelled) {
+                    return;
+                }
+                ServerInfo info = found.info;
+                ServerInfo result = info;
+                // The bot's join is one more connection to the host
+                awaitRateTurn(found.hostKey);
+                String screenshotPath = screenshotService.capture(info, checkUsername);
+                if (!screenshotPath.isEmpty()) {
+                    result = info.withScreenshotPath(screenshotPath);
+                }
+                sink.put(result);
+                if (reportScreenshots) {
+                    notifyScreenshotProgress(progressCallback, totalProbes);
+                }
+            });
+        PipelineStage<FoundServer> whitelist = new PipelineStage<>("whitelist", whitelistWorkers, whitelistWorkers * 4,
+            found -> {
+                if (cancelled) {
+                    return;
+                }
+                ServerInfo result = MinecraftProtocol.checkWhitelist(found.info, checkUsername, whitelistPolicy,
+                    cancellation, () -> awaitRateTurn(found.hostKey));
+                if (result.hasWhitelist()) {
+                    whitelistCount.incrementAndGet();
+                }
+                if (screenshotsEnabled && screenshotService != null) {
+                    screenshots.put(new FoundServer(found.hostKey, result));
+                } else {
+                    sink.put(result);
+                }
+                reportScanned(progressCallback, totalProbes, result);
+            });
+        PipelineStage<OpenPort> status = new PipelineStage<>("status", statusWorkers, statusWorkers * 2,
+            target -> {
+                String targetIP = source.hostText(target.hostKey);
+                ServerInfo info;
+                try {
+                    info = probeStatus(target.hostKey, targetIP, target.port);
+                } catch (SocketTimeoutException e) {
+                    // Reported once the retries are used up, not now
+                    if (!cancelled && statusRetries.offer(target.hostKey, target.port, target.failures + 1)) {
+                        return;
+                    }
+                    info = new ServerInfo(targetIP, target.port);
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (info.isOnline()) {
+                    onlineCount.incrementAndGet();
+                    if (statusOnly) {
+                        sink.put(info);
+                        reportScanned(progressCallback, totalProbes, info);
+                    } else {
+                        whitelist.put(new FoundServer(target.hostKey, info));
+                    }
+                } else {
+                    reportScanned(progressCallback, totalProbes, info);
+                }
+            });
+        stages.add(status);
+        stages.add(whitelist);
+        stages.add(screenshots);
+        stages.add(sink);
+        return status;
     }
 
-    private void notifyScreenshotProgress(Consumer<ScanProgress> progressCallback,
-                                          int completed, int total, int totalScans) {
-        if (progressCallback == null || cancelled) {
-            return;
+    /**
+     * Closes the stages front to back, each once the one feeding it has drained.
+     * Screenshot progress takes over the display when only captures are left.
+     */
+    private void finishPipeline(Consumer<ScanProgress> progressCallback, int totalProbes) throws InterruptedException {
+        stages.get(0).finish();
+        stages.get(1).finish();
+        reportScreenshots = true;
+        if (stages.get(2).snapshot().getAccepted() > 0) {
+            notifyScreenshotProgress(progressCallback, totalProbes);
         }
+        stages.get(2).finish();
+        stages.get(3).finish();
+    }
 
-        progressCallback.accept(ScanProgress.screenshots(
-            scannedCount.get(), totalScans, completed, total, onlineCount.get(), whitelistCount.get()));
+    /**
+     * One status probe on the selector threads. The worker waits for it, so the
+     * stage's pool size is how many status probes are in flight at most.
+     */
+    private ServerInfo probeStatus(long hostKey, String targetIP, int port)
+            throws InterruptedException, SocketTimeoutException {
+        if (!acquireProbeSlot(hostKey)) {
+            return new ServerInfo(targetIP, port);
+        }
+        MinecraftProtocol.StatusResponse status = null;
+        Throwable error = null;
+        try {
+            status = probeEngine.probeStatus(targetIP, port).get();
+        } catch (ExecutionException e) {
+            error = e.getCause();
+        } finally {
+            inFlight.release();
+        }
+        recordStatus(hostKey, status, error);
+        if (error instanceof SocketTimeoutException) {
+            throw (SocketTimeoutException) error;
+        }
+        return status != null ? MinecraftProtocol.parseStatus(targetIP, port, status) : new ServerInfo(targetIP, port);
     }
 
-    private void applyWorkerDelay() {
-        if (cancelled || scanSpeed.getDelayMs() <= 0) {
-            return;
+    /**
+     * Last stage: keeps the result for the final exports and appends it to the live
+     * results file right away, so a crash or a cancel loses nothing already found.
+     */
+    private void store(ServerInfo info) {
+        results.add(info);
+        PrintWriter writer = liveResults;
+        if (writer != null) {
+            writer.println(toJson(info));
+            writer.flush();
+            if (writer.checkError()) {
+                System.err.println("[Pipeline] Could not write " + liveResultsFile.getAbsolutePath());
+                liveResults = null;
+                writer.close();
+            }
         }
+    }
 
+    private void openLiveResults() {
         try {
-            Thread.sleep(scanSpeed.getDelayMs());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            ensureParentDirectory(liveResultsFile);
+            liveResults = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(liveResultsFile, true), StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            System.err.println("[Pipeline] Live results disabled: " + e.getMessage());
         }
     }
-    
+
+    private void closeLiveResults() {
+        PrintWriter writer = liveResults;
+        liveResults = null;
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private void reportScanned(Consumer<ScanProgress> progressCallback, int totalProbes, ServerInfo info) {
+        int scanned = scannedCount.incrementAndGet();
+        if (progressCallback != null && !cancelled) {
+            progressCallback.accept(withLiveRates(new ScanProgress(scanned, totalProbes, info,
+                onlineCount.get(), whitelistCount.get())));
+        }
+    }
+
+    private void notifyScreenshotProgress(Consumer<ScanProgress> progressCallback, int totalScans) {
+        if (progressCallback == null || cancelled) {
+            return;
+        }
+        PipelineStage.Snapshot screenshots = stages.get(2).snapshot();
+        progressCallback.accept(ScanProgress.screenshots(
+            scannedCount.get(), totalScans, (int) screenshots.getProcessed(), (int) screenshots.getAccepted(),
+            onlineCount.get(), whitelistCount.get()));
+    }
+
+    /**
+     * Stops the scan right away: the probe engine, every whitelist login socket and
+     * every capture process are closed or killed directly rather than timing out.
+     */
     public void cancel() {
         cancelled = true;
-        executor.shutdownNow();
-        screenshotExecutor.shutdownNow();
+        cancellation.cancel();
+        for (PipelineStage<?> stage : stages) {
+            stage.cancel();
+        }
     }
 
     public File getScreenshotOutputDir() {
         return screenshotOutputDir;
     }
 
+    /**
+     * Results in the order they were finished, one JSON object per line, written while the scan runs.
+     */
+    public File getLiveResultsFile() {
+        return liveResultsFile;
+    }
+
+    /**
+     * Queue depth and throughput of each stage after the sweep, in pipeline order.
+     */
+    public List<PipelineStage.Snapshot> getStageSnapshots() {
+        List<PipelineStage.Snapshot> snapshots = new ArrayList<>(stages.size());
+        for (PipelineStage<?> stage : stages) {
+            snapshots.add(stage.snapshot());
+        }
+        return snapshots;
+    }
+
     public List<ServerInfo> getResultsSnapshot() {
         List<ServerInfo> snapshot = new ArrayList<>(results);
         snapshot.sort(Comparator
@@ -281,8 +880,8 @@ public class ScannerService {
             writer.println("                    MINECRAFT SERVER SCANNER - DETAILED RESULTS");
             writer.println(repeat("=", 100));
             writer.println("Scan Date:    " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
-            writer.println("Target IPs:   " + String.join(", ", targetIPs));
-            writer.println("Port Range:   " + startPort + " - " + (startPort + limit - 1));
+            writer.println("Target IPs:   " + source);
+            writer.println("Port Range:   " + source.ports());
             writer.println("Scan Speed:   " + scanSpeed);
             writer.println("Check Nick:   " + checkUsername);
             writer.println("Screenshots:  " + (screenshotsEnabled ? "Enabled" : "Disabled"));
@@ -315,7 +914,7 @@ public class ScannerService {
             }
             
             writer.println(repeat("-", 100));
-            writer.println("RESULTS FOR ALL IPs: " + String.join(", ", targetIPs));
+            writer.println("RESULTS FOR ALL IPs: " + source);
             writer.println(repeat("-", 100));
             writer.println();
             
@@ -385,9 +984,11 @@ public class ScannerService {
 
         JSONObject root = new JSONObject();
         root.put("scanDate", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
-        root.put("targetIPs", new JSONArray(targetIPs));
-        root.put("startPort", startPort);
-        root.put("endPort", startPort + limit - 1);
+        PortSet ports = source.ports();
+        root.put("targetIPs", new JSONArray(source.describe()));
+        root.put("startPort", ports.first());
+        root.put("endPort", ports.last());
+        root.put("ports", ports.toString());
         root.put("scanSpeed", String.valueOf(scanSpeed));
         root.put("checkNick", checkUsername);
         root.put("screenshots", screenshotsEnabled);
@@ -395,18 +996,7 @@ public class ScannerService {
 
         JSONArray servers = new JSONArray();
         for (ServerInfo info : getResultsSnapshot()) {
-            JSONObject server = new JSONObject();
-            server.put("ip", info.getIp());
-            server.put("port", info.getPort());
-            server.put("version", info.getVersion());
-            server.put("protocol", info.getProtocolVersion());
-            server.put("playersOnline", info.getPlayersOnline());
-            server.put("playersMax", info.getPlayersMax());
-            server.put("pingMs", info.getPing());
-            server.put("whitelist", info.hasWhitelist());
-            server.put("motd", info.getDisplayMotd());
-            server.put("screenshotPath", info.getScreenshotPath());
-            servers.put(server);
+            servers.put(toJson(info));
         }
         root.put("servers", servers);
 
@@ -418,6 +1008,21 @@ public class ScannerService {
         }
     }
 
+    private static JSONObject toJson(ServerInfo info) {
+        JSONObject server = new JSONObject();
+        server.put("ip", info.getIp());
+        server.put("port", info.getPort());
+        server.put("version", info.getVersion());
+        server.put("protocol", info.getProtocolVersion());
+        server.put("playersOnline", info.getPlayersOnline());
+        server.put("playersMax", info.getPlayersMax());
+        server.put("pingMs", info.getPing());
+        server.put("whitelist", info.hasWhitelist());
+        server.put("motd", info.getDisplayMotd());
+        server.put("screenshotPath", info.getScreenshotPath());
+        return server;
+    }
+
     private static void ensureParentDirectory(File file) throws IOException {
         File parent = file.getParentFile();
         if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
@@ -425,6 +1030,16 @@ public class ScannerService {
         }
     }
 
+    private static TargetSource gridOf(TargetSet targets, PortSet ports) {
+        if (targets == null || targets.isEmpty()) {
+            throw new IllegalArgumentException("At least one target IP is required");
+        }
+        if (ports == null || ports.size() == 0) {
+            throw new IllegalArgumentException("At least one port is required");
+        }
+        return new GridTargets(targets, ports);
+    }
+
     private static String csv(String value) {
         String safe = value == null ? "" : value;
         return "\"" + safe.replace("\"", "\"\"") + "\"";
@@ -438,8 +1053,84 @@ public class ScannerService {
         return builder.toString();
     }
     
+    /**
+     * Host and port of connects that timed out, in two flat arrays rather than a
+     * boxed collection, since a sweep of a mostly dead range can fill it.
+     */
+    private static final class TimeoutLog {
+        interface Visitor {
+            void visit(long hostKey, int port);
+        }
+
+        private final int limit;
+        private long[] hosts = new long[64];
+        private int[] ports = new int[64];
+        private int size;
+        private int dropped;
+
+        TimeoutLog(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized void add(long hostKey, int port) {
+            if (size == limit) {
+                dropped++;
+                return;
+            }
+            if (size == hosts.length) {
+                hosts = Arrays.copyOf(hosts, Math.min(limit, size * 2));
+                ports = Arrays.copyOf(ports, hosts.length);
+            }
+            hosts[size] = hostKey;
+            ports[size] = port;
+            size++;
+        }
+
+        /**
+         * Hands every entry to {@code visitor} and empties the log.
+         */
+        synchronized void drain(Visitor visitor) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(hosts[i], ports[i]);
+            }
+            if (dropped > 0) {
+                System.out.println("[Retry] " + dropped + " timed-out connect(s) not kept for retry");
+            }
+            hosts = new long[64];
+            ports = new int[64];
+            size = 0;
+            dropped = 0;
+        }
+    }
+
+    /**
+     * A server that answered the status probe, with the key of its host.
+     */
+    private static final class FoundServer {
+        private final long hostKey;
+        private final ServerInfo info;
+
+        FoundServer(long hostKey, ServerInfo info) {
+            this.hostKey = hostKey;
+            this.info = info;
+        }
+    }
+
+    private static final class OpenPort {
+        private final long hostKey;
+        private final int port;
+        private final int failures;
+
+        OpenPort(long hostKey, int port, int failures) {
+            this.hostKey = hostKey;
+            this.port = port;
+            this.failures = failures;
+        }
+    }
+
     public static class ScanProgress {
         public enum Stage {
+            SWEEPING,
             SCANNING,
             SCREENSHOTS
         }
@@ -450,32 +1141,47 @@ public class ScannerService {
         private final ServerInfo lastResult;
         private final int onlineTotal;
         private final int whitelistTotal;
+        private final int openPorts;
         private final int screenshotsDone;
         private final int screenshotsTotal;
+        private final AimdController.Snapshot adaptive;
         
         public ScanProgress(int scanned, int total, ServerInfo lastResult, int onlineTotal, int whitelistTotal) {
-            this(Stage.SCANNING, scanned, total, lastResult, onlineTotal, whitelistTotal, 0, 0);
+            this(Stage.SCANNING, scanned, total, lastResult, onlineTotal, whitelistTotal, 0, 0, 0, null);
         }
 
         private ScanProgress(Stage stage, int scanned, int total, ServerInfo lastResult,
-                             int onlineTotal, int whitelistTotal, int screenshotsDone, int screenshotsTotal) {
+                             int onlineTotal, int whitelistTotal, int openPorts,
+                             int screenshotsDone, int screenshotsTotal, AimdController.Snapshot adaptive) {
             this.stage = stage;
             this.scanned = scanned;
             this.total = total;
             this.lastResult = lastResult;
             this.onlineTotal = onlineTotal;
             this.whitelistTotal = whitelistTotal;
+            this.openPorts = openPorts;
             this.screenshotsDone = screenshotsDone;
             this.screenshotsTotal = screenshotsTotal;
+            this.adaptive = adaptive;
+        }
+
+        public static ScanProgress sweep(int swept, int total, int openPorts) {
+            return new ScanProgress(Stage.SWEEPING, swept, total, null, 0, 0, openPorts, 0, 0, null);
         }
 
         public static ScanProgress screenshots(int scanned, int total, int screenshotsDone,
                                                int screenshotsTotal, int onlineTotal, int whitelistTotal) {
             return new ScanProgress(Stage.SCREENSHOTS, scanned, total, null,
-                onlineTotal, whitelistTotal, screenshotsDone, screenshotsTotal);
+                onlineTotal, whitelistTotal, 0, screenshotsDone, screenshotsTotal, null);
+        }
+
+        ScanProgress withAdaptive(AimdController.Snapshot snapshot) {
+            return new ScanProgress(stage, scanned, total, lastResult, onlineTotal, whitelistTotal,
+                openPorts, screenshotsDone, screenshotsTotal, snapshot);
         }
         
         public Stage getStage() { return stage; }
+        public boolean isSweepStage() { return stage == Stage.SWEEPING; }
         public boolean isScreenshotStage() { return stage == Stage.SCREENSHOTS; }
         public int getScanned() { return scanned; }
         public int getTotal() { return total; }
@@ -484,6 +1190,12 @@ public class ScannerService {
         public int getWhitelistTotal() { return whitelistTotal; }
         public int getScreenshotsDone() { return screenshotsDone; }
         public int getScreenshotsTotal() { return screenshotsTotal; }
+        public int getOpenPorts() { return openPorts; }
+
+        /**
+         * Current window and rolling outcome rates, or null unless the speed is ADAPTIVE.
+         */
+        public AimdController.Snapshot getAdaptive() { return adaptive; }
 
         public int getProgress() {
             int current = isScreenshotStage() ? screenshotsDone : scanned;
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * One difference between two runs: a server that appeared, one that went away, or
+ * one whose status changed, with the fields that did.
+ */
+public final class ServerChange {
+    public enum Type { ADDED, REMOVED, CHANGED }
+
+    public enum Field { VERSION, PLAYERS, WHITELIST, MOTD }
+
+    private final Type type;
+    private final ServerInfo previous;
+    private final ServerInfo current;
+    private final Set<Field> fields;
+
+    private ServerChange(Type type, ServerInfo previous, ServerInfo current, Set<Field> fields) {
+        this.type = type;
+        this.previous = previous;
+        this.current = current;
+        this.fields = fields;
+    }
+
+    static ServerChange added(ServerInfo current) {
+        return new ServerChange(Type.ADDED, null, current, Collections.<Field>emptySet());
+    }
+
+    static ServerChange removed(ServerInfo previous) {
+        return new ServerChange(Type.REMOVED, previous, null, Collections.<Field>emptySet());
+    }
+
+    /**
+     * @return the change, or null when none of the compared fields differ
+     */
+    static ServerChange compare(ServerInfo previous, ServerInfo current) {
+        // A bit per field, so the common case of no change allocates nothing
+        int changed = 0;
+        if (!Objects.equals(previous.getVersion(), current.getVersion())) {
+            changed |= 1 << Field.VERSION.ordinal();
+        }
+        if (previous.getPlayersOnline() != current.getPlayersOnline()
+                || previous.getPlayersMax() != current.getPlayersMax()) {
+            changed |= 1 << Field.PLAYERS.ordinal();
+        }
+        if (previous.hasWhitelist() != current.hasWhitelist()) {
+            changed |= 1 << Field.WHITELIST.ordinal();
+        }
+        // Cleaning the MOTD is the costly part, and most of the time the raw text is unchanged
+        if (!Objects.equals(previous.getMotd(), current.getMotd())
+                && !Objects.equals(previous.getDisplayMotd(), current.getDisplayMotd())) {
+            changed |= 1 << Field.MOTD.ordinal();
+        }
+        if (changed == 0) {
+            return null;
+        }
+        EnumSet<Field> fields = EnumSet.noneOf(Field.class);
+        for (Field field : Field.values()) {
+            if ((changed & 1 << field.ordinal()) != 0) {
+                fields.add(field);
+            }
+        }
+        return new ServerChange(Type.CHANGED, previous, current, Collections.unmodifiableSet(fields));
+    }
+
+    public Type getType() { return type; }
+
+    /**
+     * The server in the earlier run; null for {@link Type#ADDED}.
+     */
+    public ServerInfo getPrevious() { return previous; }
+
+    /**
+     * The server in the later run; null for {@link Type#REMOVED}.
+     */
+    public ServerInfo getCurrent() { return current; }
+
+    /**
+     * What differs for {@link Type#CHANGED}; empty otherwise.
+     */
+    public Set<Field> getFields() { return fields; }
+
+    public ServerInfo getServer() {
+        return current != null ? current : previous;
+    }
+
+    public String getKey() {
+        ServerInfo server = getServer();
+        return server.getIp() + ":" + server.getPort();
+    }
+
+    /**
+     * One line as shown in the monitoring change list: "+", "-" or "*", the server,
+     * and what changed.
+     */
+    public String describe() {
+        switch (type) {
+            case ADDED:
+                return "+ " + getKey() + " [" + current.getVersion() + "] "
+                    + current.getPlayersOnline() + "/" + current.getPlayersMax();
+            case REMOVED:
+                return "- " + getKey();
+            default:
+                List<String> changes = new ArrayList<>();
+                if (fields.contains(Field.VERSION)) {
+                    changes.add("version " + previous.getVersion() + " -> " + current.getVersion());
+                }
+                if (fields.contains(Field.PLAYERS)) {
+                    changes.add("players " + previous.getPlayersOnline() + "/" + previous.getPlayersMax()
+                        + " -> " + current.getPlayersOnline() + "/" + current.getPlayersMax());
+                }
+                if (fields.contains(Field.WHITELIST)) {
+                    changes.add("WL " + (previous.hasWhitelist() ? "YES" : "NO")
+                        + " -> " + (current.hasWhitelist() ? "YES" : "NO"));
+                }
+                if (fields.contains(Field.MOTD)) {
+                    changes.add("MOTD changed");
+                }
+                return "* " + getKey() + " " + String.join("; ", changes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compares the servers of two runs. Each server is keyed by one long: an IPv4
+ * address and port pack into the low 48 bits, and any other host (IPv6, names)
+ * gets a number from a side table with the top bit set. Runs are indexed in
+ * open-addressing tables over those longs, so a diff is two linear passes with
+ * no string keys built per server.
+ * <p>
+ * Keep one instance for a whole monitoring session, since the side table numbers
+ * must stay the same between the runs it compares. Not thread-safe.
+ */
+public class ServerDiff {
+    private static final long SIDE_TABLE_BIT = 1L << 63;
+
+    private final Map<String, Integer> otherHosts = new HashMap<>();
+
+    public Index index(Collection<ServerInfo> servers) {
+        Index index = new Index(servers.size());
+        for (ServerInfo server : servers) {
+            index.put(keyOf(server), server);
+        }
+        return index;
+    }
+
+    /**
+     * Sends every difference between the runs to {@code changes}: servers added or
+     * changed in the order of {@code current}, then the removed ones in the order
+     * of {@code previous}.
+     */
+    public void diff(Index previous, Index current, Consumer<ServerChange> changes) {
+        for (int i = 0; i < current.size(); i++) {
+            ServerInfo now = current.servers.get(i);
+            ServerInfo before = previous.get(current.keys[i]);
+            if (before == null) {
+                changes.accept(ServerChange.added(now));
+            } else {
+                ServerChange change = ServerChange.compare(before, now);
+                if (change != null) {
+                    changes.accept(change);
+                }
+            }
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (!current.contains(previous.keys[i])) {
+                changes.accept(ServerChange.removed(previous.servers.get(i)));
+            }
+        }
+    }
+
+    public List<ServerChange> diff(Index previous, Index current) {
+        List<ServerChange> changes = new ArrayList<>();
+        diff(previous, current, changes::add);
+        return changes;
+    }
+
+    /**
+     * The key of a server's host and port, for {@link Index#get} and {@link Index#contains}.
+     */
+    public long keyOf(ServerInfo server) {
+        long host = parseIpv4(server.getIp());
+        if (host < 0) {
+            Integer id = otherHosts.get(server.getIp());
+            if (id == null) {
+                id = otherHosts.size();
+                otherHosts.put(server.getIp(), id);
+            }
+            host = SIDE_TABLE_BIT >>> 16 | id;
+        }
+        return host << 16 | server.getPort();
+    }
+
+    /**
+     * A dotted quad as an unsigned 32-bit value, or -1 for anything else.
+     */
+    private static long parseIpv4(String text) {
+        long address = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                address = address << 8 | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        return dots == 3 && octet >= 0 ? address << 8 | octet : -1;
+    }
+
+    /**
+     * The servers of one run by key. Later entries with the same key replace
+     * earlier ones, as in a map.
+     */
+    public static final class Index {
+        // Key 0 would be 0.0.0.0 port 0, which no server has, so it marks free slots
+        private static final long FREE = 0;
+
+        private long[] keys;
+        private final List<ServerInfo> servers;
+        private final long[] slotKeys;
+        private final int[] slotPositions;
+        private final int mask;
+
+        private Index(int expected) {
+            this.keys = new long[Math.max(expected, 1)];
+            this.servers = new ArrayList<>(expected);
+            // At most half full, so probe runs stay short
+            int capacity = Integer.highestOneBit(Math.max(expected, 2) * 2 - 1) << 1;
+            this.slotKeys = new long[capacity];
+            this.slotPositions = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        public int size() {
+            return servers.size();
+        }
+
+        /**
+         * The servers in the order they were indexed.
+         */
+        public List<ServerInfo> servers() {
+            return Collections.unmodifiableList(servers);
+        }
+
+        public ServerInfo get(long key) {
+            int slot = find(key);
+            return slotKeys[slot] == FREE ? null : servers.get(slotPositions[slot]);
+        }
+
+        public boolean contains(long key) {
+            return slotKeys[find(key)] != FREE;
+        }
+
+        private void put(long key, ServerInfo server) {
+            int slot = find(key);
+            if (slotKeys[slot] != FREE) {
+                servers.set(slotPositions[slot], server);
+                return;
+            }
+            if (servers.size() == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            slotKeys[slot] = key;
+            slotPositions[slot] = servers.size();
+            keys[servers.size()] = key;
+            servers.add(server);
+        }
+
+        /**
+         * The slot holding {@code key}, or the free slot where it would go.
+         */
+        private int find(long key) {
+            int slot = mix(key) & mask;
+            while (slotKeys[slot] != FREE && slotKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
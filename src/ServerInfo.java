@@ -69,6 +69,11 @@ public class ServerInfo {
         return new ServerInfo(ip, port, online, version, playersOnline, playersMax,
             motd, hasWhitelist, ping, protocolVersion, screenshotPath);
     }
+
+    public ServerInfo withWhitelist(boolean hasWhitelist) {
+        return new ServerInfo(ip, port, online, version, playersOnline, playersMax,
+            motd, hasWhitelist, ping, protocolVersion, screenshotPath);
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,490 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The fields of a status response the scanner keeps, read in one pass over the
+ * UTF-8 bytes. Favicons, player samples and unknown keys are stepped over without
+ * being decoded; anything the reader does not understand goes through org.json.
+ */
+public class StatusJson {
+    private static final byte[] VERSION = key("version");
+    private static final byte[] NAME = key("name");
+    private static final byte[] PROTOCOL = key("protocol");
+    private static final byte[] PLAYERS = key("players");
+    private static final byte[] ONLINE = key("online");
+    private static final byte[] MAX = key("max");
+    private static final byte[] DESCRIPTION = key("description");
+    private static final byte[] TEXT = key("text");
+    private static final byte[] EXTRA = key("extra");
+    private static final int MAX_DEPTH = 64;
+
+    private String version = "Unknown";
+    private int protocol = -1;
+    private int online;
+    private int max;
+    private String motd = "";
+
+    private StatusJson() {
+    }
+
+    public String getVersion() { return version; }
+    public int getProtocol() { return protocol; }
+    public int getOnline() { return online; }
+    public int getMax() { return max; }
+    public String getMotd() { return motd; }
+
+    /**
+     * Reads the status fields, falling back to org.json when the streaming reader
+     * rejects the input.
+     *
+     * @throws JSONException if org.json cannot parse it either
+     */
+    public static StatusJson parse(byte[] json) {
+        try {
+            return new Reader(json).readStatus();
+        } catch (MalformedException e) {
+            return fromJsonObject(new JSONObject(new String(json, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static StatusJson fromJsonObject(JSONObject obj) {
+        StatusJson status = new StatusJson();
+
+        JSONObject version = obj.optJSONObject("version");
+        if (version != null) {
+            status.version = version.optString("name", "Unknown");
+            status.protocol = version.optInt("protocol", -1);
+        }
+
+        JSONObject players = obj.optJSONObject("players");
+        if (players != null) {
+            status.online = players.optInt("online", 0);
+            status.max = players.optInt("max", 0);
+        }
+
+        if (obj.has("description")) {
+            Object desc = obj.get("description");
+            if (desc instanceof String) {
+                status.motd = (String) desc;
+            } else if (desc instanceof JSONObject) {
+                status.motd = MinecraftProtocol.extractTextFromJson((JSONObject) desc);
+            }
+        }
+        return status;
+    }
+
+    private static byte[] key(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class MalformedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        MalformedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        // Bounds of the last key read, so keys are compared without building strings
+        private int keyStart;
+        private int keyEnd;
+        private boolean keyEscaped;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        StatusJson readStatus() throws MalformedException {
+            StatusJson status = new StatusJson();
+            expect('{');
+            if (!closes('}')) {
+                do {
+                    readKey();
+                    if (keyIs(VERSION) && peek() == '{') {
+                        readVersion(status);
+                    } else if (keyIs(PLAYERS) && peek() == '{') {
+                        readPlayers(status);
+                    } else if (keyIs(DESCRIPTION)) {
+                        byte next = peek();
+                        if (next == '"') {
+                            status.motd = readString();
+                        } else if (next == '{') {
+                            StringBuilder motd = new StringBuilder();
+                            readComponent(motd, 0);
+                            status.motd = motd.toString();
+                        } else {
+                            status.motd = "";
+                            skipValue();
+                        }
+                    } else {
+                        skipValue();
+                    }
+                } while (nextMember('}'));
+            }
+
+            skipWhitespace();
+            if (pos != data.length) {
+                throw new MalformedException("Trailing data at " + pos);
+            }
+            return status;
+        }
+
+        private void readVersion(StatusJson status) throws MalformedException {
+            status.version = "Unknown";
+            status.protocol = -1;
+            expect('{');
+            if (closes('}')) {
+                return;
+            }
+            do {
+                readKey();
+                if (keyIs(NAME)) {
+                    String name = readScalar();
+                    status.version = name != null ? name : "Unknown";
+                } else if (keyIs(PROTOCOL)) {
+                    status.protocol = readInt(-1);
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+
+        private void readPlayers(StatusJson status) throws MalformedException {
+            status.online = 0;
+            status.max = 0;
+            expect('{');
+            if (closes('}')) {
+                return;
+            }
+            do {
+                readKey();
+                if (keyIs(ONLINE)) {
+                    status.online = readInt(0);
+                } else if (keyIs(MAX)) {
+                    status.max = readInt(0);
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+
+        /**
+         * Appends a text component the way the scanner flattens it: its own text
+         * first, then each extra entry, whatever order the keys come in.
+         */
+        private void readComponent(StringBuilder out, int depth) throws MalformedException {
+            if (depth > MAX_DEPTH) {
+                throw new MalformedException("Component nested too deep");
+            }
+
+            String text = null;
+            StringBuilder extra = null;
+            expect('{');
+            if (!closes('}')) {
+                do {
+                    readKey();
+                    if (keyIs(TEXT)) {
+                        text = readScalar();
+                    } else if (keyIs(EXTRA) && peek() == '[') {
+                        extra = new StringBuilder();
+                        readExtra(extra, depth);
+                    } else {
+                        skipValue();
+                    }
+                } while (nextMember('}'));
+            }
+
+            if (text != null) {
+                out.append(text);
+            }
+            if (extra != null) {
+                out.append(extra);
+            }
+        }
+
+        private void readExtra(StringBuilder out, int depth) throws MalformedException {
+            expect('[');
+            if (closes(']')) {
+                return;
+            }
+            do {
+                byte next = peek();
+                if (next == '"') {
+                    out.append(readString());
+                } else if (next == '{') {
+                    readComponent(out, depth + 1);
+                } else {
+                    skipValue();
+                }
+            } while (nextMember(']'));
+        }
+
+        /**
+         * Reads a string, number or boolean as text; null and containers give null.
+         */
+        private String readScalar() throws MalformedException {
+            byte next = peek();
+            if (next == '"') {
+                return readString();
+            }
+            if (next == '{' || next == '[') {
+                skipValue();
+                return null;
+            }
+            int start = pos;
+            skipLiteral();
+            String literal = new String(data, start, pos - start, StandardCharsets.US_ASCII);
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private int readInt(int fallback) throws MalformedException {
+            String value = readScalar();
+            if (value == null) {
+                return fallback;
+            }
+            try {
+                return (int) Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+
+        private void readKey() throws MalformedException {
+            skipWhitespace();
+            if (pos >= data.length || data[pos] != '"') {
+                throw new MalformedException("Expected key at " + pos);
+            }
+            keyStart = pos + 1;
+            keyEscaped = false;
+            int end = keyStart;
+            while (end < data.length && data[end] != '"') {
+                if (data[end] == '\\') {
+                    keyEscaped = true;
+                    end++;
+                }
+                end++;
+            }
+            if (end >= data.length) {
+                throw new MalformedException("Unterminated key");
+            }
+            keyEnd = end;
+            pos = end + 1;
+            expect(':');
+        }
+
+        private boolean keyIs(byte[] name) throws MalformedException {
+            if (keyEscaped) {
+                // Rare enough that decoding is fine
+                int saved = pos;
+                pos = keyStart - 1;
+                String decoded = readString();
+                pos = saved;
+                return decoded.equals(new String(name, StandardCharsets.US_ASCII));
+            }
+            if (keyEnd - keyStart != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (data[keyStart + i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String readString() throws MalformedException {
+            expect('"');
+            int start = pos;
+            while (pos < data.length && data[pos] != '"' && data[pos] != '\\') {
+                pos++;
+            }
+            if (pos >= data.length) {
+                throw new MalformedException("Unterminated string");
+            }
+            if (data[pos] == '"') {
+                return new String(data, start, pos++ - start, StandardCharsets.UTF_8);
+            }
+
+            StringBuilder value = new StringBuilder(new String(data, start, pos - start, StandardCharsets.UTF_8));
+            while (true) {
+                if (pos >= data.length) {
+                    throw new MalformedException("Unterminated string");
+                }
+                byte current = data[pos];
+                if (current == '"') {
+                    pos++;
+                    return value.toString();
+                }
+                if (current != '\\') {
+                    int run = pos;
+                    while (pos < data.length && data[pos] != '"' && data[pos] != '\\') {
+                        pos++;
+                    }
+                    value.append(new String(data, run, pos - run, StandardCharsets.UTF_8));
+                    continue;
+                }
+                if (pos + 1 >= data.length) {
+                    throw new MalformedException("Unterminated escape");
+                }
+                byte escaped = data[pos + 1];
+                pos += 2;
+                switch (escaped) {
+                    case '"': value.append('"'); break;
+                    case '\\': value.append('\\'); break;
+                    case '/': value.append('/'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        value.append((char) readHex4());
+                        break;
+                    default:
+                        throw new MalformedException("Bad escape at " + pos);
+                }
+            }
+        }
+
+        private int readHex4() throws MalformedException {
+            if (pos + 4 > data.length) {
+                throw new MalformedException("Truncated unicode escape");
+            }
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(data[pos++], 16);
+                if (digit < 0) {
+                    throw new MalformedException("Bad unicode escape at " + pos);
+                }
+                value = (value << 4) | digit;
+            }
+            return value;
+        }
+
+        /**
+         * Steps over one value of any type. Strings are scanned for their closing
+         * quote only, which is what keeps a large favicon cheap.
+         */
+        private void skipValue() throws MalformedException {
+            skipWhitespace();
+            if (pos >= data.length) {
+                throw new MalformedException("Missing value");
+            }
+            byte first = data[pos];
+            if (first == '"') {
+                skipString();
+            } else if (first == '{' || first == '[') {
+                skipContainer();
+            } else {
+                skipLiteral();
+            }
+        }
+
+        private void skipString() throws MalformedException {
+            pos++;
+            while (pos < data.length) {
+                byte current = data[pos++];
+                if (current == '"') {
+                    return;
+                }
+                if (current == '\\') {
+                    pos++;
+                }
+            }
+            throw new MalformedException("Unterminated string");
+        }
+
+        private void skipContainer() throws MalformedException {
+            int depth = 0;
+            while (pos < data.length) {
+                byte current = data[pos];
+                if (current == '"') {
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if (current == '{' || current == '[') {
+                    if (++depth > MAX_DEPTH) {
+                        throw new MalformedException("Value nested too deep");
+                    }
+                } else if (current == '}' || current == ']') {
+                    if (--depth == 0) {
+                        return;
+                    }
+                }
+            }
+            throw new MalformedException("Unterminated container");
+        }
+
+        private void skipLiteral() throws MalformedException {
+            int start = pos;
+            while (pos < data.length) {
+                byte current = data[pos];
+                boolean literal = (current >= '0' && current <= '9') || (current >= 'a' && current <= 'z')
+                    || current == '-' || current == '+' || current == '.' || current == 'E';
+                if (!literal) {
+                    break;
+                }
+                pos++;
+            }
+            if (pos == start) {
+                throw new MalformedException("Unexpected character at " + pos);
+            }
+        }
+
+        private boolean nextMember(char close) throws MalformedException {
+            skipWhitespace();
+            if (pos < data.length) {
+                byte current = data[pos++];
+                if (current == ',') {
+                    return true;
+                }
+                if (current == close) {
+                    return false;
+                }
+            }
+            throw new MalformedException("Expected ',' or '" + close + "' at " + pos);
+        }
+
+        private boolean closes(char close) {
+            skipWhitespace();
+            if (pos < data.length && data[pos] == close) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private byte peek() throws MalformedException {
+            skipWhitespace();
+            if (pos >= data.length) {
+                throw new MalformedException("Unexpected end of input");
+            }
+            return data[pos];
+        }
+
+        private void expect(char expected) throws MalformedException {
+            skipWhitespace();
+            if (pos >= data.length || data[pos] != expected) {
+                throw new MalformedException("Expected '" + expected + "' at " + pos);
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < data.length) {
+                byte current = data[pos];
+                if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+                    return;
+                }
+                pos++;
+            }
+        }
+    }
+}
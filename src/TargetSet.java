@@ -0,0 +1,467 @@
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scan targets kept as merged numeric address intervals plus a list of host
+ * names. Addresses are numbered IPv4 first, then IPv6, then names, and are only
+ * turned into strings or {@link InetAddress}es when asked for by index.
+ */
+public class TargetSet {
+    // Wider IPv6 blocks cannot be swept port by port in any useful time
+    private static final int MIN_IPV6_PREFIX = 96;
+    private static final long MAX_IPV6_RANGE = 1L << 32;
+    private static final Pattern NUMBER = Pattern.compile("(\\d+)");
+    // Hex groups, colons, an optional dotted IPv4 tail and scope id; anything else would go to DNS
+    private static final Pattern V6_LITERAL = Pattern.compile("[0-9A-Fa-f:.]+(%[\\w.-]+)?");
+
+    private final long[] v4Start;
+    private final long[] v4End;
+    private final long[] v4Before;
+    private final long[] v6StartHi;
+    private final long[] v6StartLo;
+    private final long[] v6EndHi;
+    private final long[] v6EndLo;
+    private final long[] v6Before;
+    private final String[] names;
+    private final long v4Count;
+    private final long v6Count;
+
+    private TargetSet(List<long[]> v4, List<long[]> v6, Set<String> names) {
+        v4 = mergeV4(v4);
+        v6 = mergeV6(v6);
+
+        v4Start = new long[v4.size()];
+        v4End = new long[v4.size()];
+        v4Before = new long[v4.size()];
+        long count = 0;
+        for (int i = 0; i < v4.size(); i++) {
+            v4Start[i] = v4.get(i)[0];
+            v4End[i] = v4.get(i)[1];
+            v4Before[i] = count;
+            count += v4End[i] - v4Start[i] + 1;
+        }
+        v4Count = count;
+
+        v6StartHi = new long[v6.size()];
+        v6StartLo = new long[v6.size()];
+        v6EndHi = new long[v6.size()];
+        v6EndLo = new long[v6.size()];
+        v6Before = new long[v6.size()];
+        count = 0;
+        for (int i = 0; i < v6.size(); i++) {
+            long[] range = v6.get(i);
+            v6StartHi[i] = range[0];
+            v6StartLo[i] = range[1];
+            v6EndHi[i] = range[2];
+            v6EndLo[i] = range[3];
+            v6Before[i] = count;
+            // Ranges are capped well below 2^64, so the low words alone give the length
+            count += range[3] - range[1] + 1;
+        }
+        v6Count = count;
+
+        this.names = names.toArray(new String[0]);
+    }
+
+    /**
+     * Parses whitespace, comma or semicolon separated targets: single addresses,
+     * CIDR blocks, "start-end" ranges (IPv4 or IPv6), "a.b.c.d-N" last-octet ranges,
+     * host names, and the older "name1-name5" numbered name ranges.
+     *
+     * @throws IllegalArgumentException for a malformed block or range
+     */
+    public static TargetSet parse(String input) {
+        List<long[]> v4 = new ArrayList<>();
+        List<long[]> v6 = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+
+        for (String part : input.trim().split("[\\s,;]+")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            if (part.contains("/")) {
+                addBlock(part, v4, v6);
+            } else if (part.contains("-")) {
+                addRange(part, v4, v6, names);
+            } else {
+                addHost(part, v4, v6, names);
+            }
+        }
+        return new TargetSet(v4, v6, names);
+    }
+
+    public long size() {
+        return v4Count + v6Count + names.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the address or host name at the index as text.
+     */
+    public String get(long index) {
+        if (index < v4Count) {
+            return formatV4(v4At(index));
+        }
+        if (index < v4Count + v6Count) {
+            long[] address = v6At(index - v4Count);
+            try {
+                return InetAddress.getByAddress(v6Bytes(address[0], address[1])).getHostAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return names[checkNameIndex(index)];
+    }
+
+    /**
+     * Returns the host name at the index, or null for a numeric target.
+     */
+    public String name(long index) {
+        return index < v4Count + v6Count ? null : names[checkNameIndex(index)];
+    }
+
+    public List<String> names() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Returns the address at the index. Numeric targets are built without any lookup;
+     * host names go through {@link HostResolver}.
+     */
+    public InetAddress address(long index) throws UnknownHostException {
+        if (index < v4Count) {
+            long value = v4At(index);
+            return InetAddress.getByAddress(new byte[] {
+                (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
+            });
+        }
+        if (index < v4Count + v6Count) {
+            long[] address = v6At(index - v4Count);
+            return InetAddress.getByAddress(v6Bytes(address[0], address[1]));
+        }
+        return HostResolver.shared().resolve(names[checkNameIndex(index)]);
+    }
+
+    /**
+     * Compact description of each interval and name, for logs and exports.
+     */
+    public List<String> describe() {
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < v4Start.length; i++) {
+            parts.add(describeV4(v4Start[i], v4End[i]));
+        }
+        for (int i = 0; i < v6StartHi.length; i++) {
+            String start = get(v4Count + v6Before[i]);
+            long length = v6EndLo[i] - v6StartLo[i] + 1;
+            parts.add(length == 1 ? start : start + "-" + get(v4Count + v6Before[i] + length - 1));
+        }
+        parts.addAll(Arrays.asList(names));
+        return parts;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(", ", describe());
+    }
+
+    private long v4At(long index) {
+        int interval = intervalOf(v4Before, index);
+        return v4Start[interval] + (index - v4Before[interval]);
+    }
+
+    private long[] v6At(long index) {
+        int interval = intervalOf(v6Before, index);
+        long offset = index - v6Before[interval];
+        long lo = v6StartLo[interval] + offset;
+        long hi = v6StartHi[interval] + (Long.compareUnsigned(lo, v6StartLo[interval]) < 0 ? 1 : 0);
+        return new long[] {hi, lo};
+    }
+
+    private int checkNameIndex(long index) {
+        long nameIndex = index - v4Count - v6Count;
+        if (index < 0 || nameIndex >= names.length) {
+            throw new IndexOutOfBoundsException("Target index " + index + " of " + size());
+        }
+        return (int) nameIndex;
+    }
+
+    private static int intervalOf(long[] before, long index) {
+        int found = Arrays.binarySearch(before, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private static void addBlock(String part, List<long[]> v4, List<long[]> v6) {
+        int slash = part.indexOf('/');
+        String base = part.substring(0, slash);
+        int prefix;
+        try {
+            prefix = Integer.parseInt(part.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid CIDR block: " + part);
+        }
+
+        long address = parseV4(base);
+        if (address >= 0) {
+            if (prefix < 0 || prefix > 32) {
+                throw new IllegalArgumentException("Invalid CIDR block: " + part);
+            }
+            long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+            long start = address & mask;
+            v4.add(new long[] {start, start | (~mask & 0xFFFFFFFFL)});
+            return;
+        }
+
+        long[] v6Address = parseV6(base);
+        if (v6Address == null) {
+            throw new IllegalArgumentException("Invalid CIDR block: " + part);
+        }
+        if (prefix < MIN_IPV6_PREFIX || prefix > 128) {
+            throw new IllegalArgumentException("IPv6 blocks must be /" + MIN_IPV6_PREFIX + " or smaller: " + part);
+        }
+        long hostMask = prefix == 128 ? 0 : -1L >>> prefix - 64;
+        long start = v6Address[1] & ~hostMask;
+        v6.add(new long[] {v6Address[0], start, v6Address[0], start | hostMask});
+    }
+
+    private static void addRange(String part, List<long[]> v4, List<long[]> v6, Set<String> names) {
+        String[] range = part.split("-", 2);
+        String start = range[0].trim();
+        String end = range[1].trim();
+
+        long v4Start = parseV4(start);
+        if (v4Start >= 0) {
+            long v4End = parseV4(end);
+            if (v4End < 0 && end.matches("\\d{1,3}")) {
+                // "10.0.0.5-40" keeps the first three octets
+                long lastOctet = Long.parseLong(end);
+                if (lastOctet > 255) {
+                    throw new IllegalArgumentException("Invalid range: " + part);
+                }
+                v4End = (v4Start & 0xFFFFFF00L) | lastOctet;
+            }
+            if (v4End >= 0) {
+                v4.add(new long[] {Math.min(v4Start, v4End), Math.max(v4Start, v4End)});
+                return;
+            }
+        }
+
+        long[] v6Start = parseV6(start);
+        long[] v6End = v6Start != null ? parseV6(end) : null;
+        if (v6End != null) {
+            if (compareV6(v6Start[0], v6Start[1], v6End[0], v6End[1]) > 0) {
+                long[] swap = v6Start;
+                v6Start = v6End;
+                v6End = swap;
+            }
+            long length = v6End[1] - v6Start[1];
+            boolean tooLarge = (v6End[0] - v6Start[0] > 1)
+                || (v6End[0] != v6Start[0] && Long.compareUnsigned(v6End[1], v6Start[1]) >= 0)
+                || Long.compareUnsigned(length, MAX_IPV6_RANGE) >= 0;
+            if (tooLarge) {
+                throw new IllegalArgumentException("IPv6 range too large: " + part);
+            }
+            v6.add(new long[] {v6Start[0], v6Start[1], v6End[0], v6End[1]});
+            return;
+        }
+
+        for (String name : expandNumberedRange(start, end)) {
+            addHost(name, v4, v6, names);
+        }
+    }
+
+    /**
+     * The original name range syntax: the last number in each side sets the bounds
+     * and the text around the first side's last number is kept ("mc1.lan-mc4.lan").
+     */
+    private static List<String> expandNumberedRange(String start, String end) {
+        List<String> hosts = new ArrayList<>();
+        Matcher startMatcher = NUMBER.matcher(start);
+        Matcher endMatcher = NUMBER.matcher(end);
+
+        String startNumber = null;
+        int startPosition = -1;
+        while (startMatcher.find()) {
+            startNumber = startMatcher.group();
+            startPosition = startMatcher.start();
+        }
+        String endNumber = null;
+        while (endMatcher.find()) {
+            endNumber = endMatcher.group();
+        }
+
+        if (startNumber == null || endNumber == null) {
+            hosts.add(start);
+            hosts.add(end);
+            return hosts;
+        }
+
+        int startNum = Integer.parseInt(startNumber);
+        int endNum = Integer.parseInt(endNumber);
+        String prefix = start.substring(0, startPosition);
+        String suffix = start.substring(startPosition + startNumber.length());
+        int step = startNum <= endNum ? 1 : -1;
+        for (int i = startNum; ; i += step) {
+            hosts.add(prefix + i + suffix);
+            if (i == endNum) {
+                break;
+            }
+        }
+        return hosts;
+    }
+
+    private static void addHost(String host, List<long[]> v4, List<long[]> v6, Set<String> names) {
+        long address = parseV4(host);
+        if (address >= 0) {
+            v4.add(new long[] {address, address});
+            return;
+        }
+        long[] v6Address = parseV6(host);
+        if (v6Address != null) {
+            v6.add(new long[] {v6Address[0], v6Address[1], v6Address[0], v6Address[1]});
+            return;
+        }
+        if (!host.isEmpty()) {
+            names.add(host);
+        }
+    }
+
+    /**
+     * Parses a dotted IPv4 address (plain or "::ffff:"-mapped), or returns -1.
+     */
+    private static long parseV4(String text) {
+        if (text.startsWith("::ffff:") || text.startsWith("::FFFF:")) {
+            // IPv4-mapped IPv6 is the same host, so it shares the IPv4 intervals
+            text = text.substring(7);
+        }
+        long value = 0;
+        int octets = 0;
+        int current = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                current = (current < 0 ? 0 : current * 10) + (c - '0');
+                if (current > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && current >= 0 && octets < 3) {
+                value = (value << 8) | current;
+                octets++;
+                current = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (current < 0 || octets != 3) {
+            return -1;
+        }
+        return (value << 8) | current;
+    }
+
+    /**
+     * Parses an IPv6 literal into {high, low} words, or returns null. Text that
+     * cannot be a literal, such as "myhost:25565", is turned down before the JDK
+     * would try to resolve it.
+     */
+    private static long[] parseV6(String text) {
+        if (text.indexOf(':') < 0 || !V6_LITERAL.matcher(text).matches()) {
+            return null;
+        }
+        try {
+            InetAddress address = InetAddress.getByName(text);
+            if (!(address instanceof Inet6Address)) {
+                return null;
+            }
+            byte[] bytes = address.getAddress();
+            long hi = 0;
+            long lo = 0;
+            for (int i = 0; i < 8; i++) {
+                hi = (hi << 8) | (bytes[i] & 0xFF);
+                lo = (lo << 8) | (bytes[i + 8] & 0xFF);
+            }
+            return new long[] {hi, lo};
+        } catch (UnknownHostException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static byte[] v6Bytes(long hi, long lo) {
+        byte[] bytes = new byte[16];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) hi;
+            bytes[i + 8] = (byte) lo;
+            hi >>>= 8;
+            lo >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static int compareV6(long hiA, long loA, long hiB, long loB) {
+        int high = Long.compareUnsigned(hiA, hiB);
+        return high != 0 ? high : Long.compareUnsigned(loA, loB);
+    }
+
+    private static List<long[]> mergeV4(List<long[]> ranges) {
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range.clone());
+            }
+        }
+        return merged;
+    }
+
+    private static List<long[]> mergeV6(List<long[]> ranges) {
+        ranges.sort((left, right) -> compareV6(left[0], left[1], right[0], right[1]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && touchesV6(last, range)) {
+                if (compareV6(range[2], range[3], last[2], last[3]) > 0) {
+                    last[2] = range[2];
+                    last[3] = range[3];
+                }
+            } else {
+                merged.add(range.clone());
+            }
+        }
+        return merged;
+    }
+
+    private static boolean touchesV6(long[] last, long[] next) {
+        long afterLo = last[3] + 1;
+        long afterHi = last[2] + (afterLo == 0 ? 1 : 0);
+        return compareV6(next[0], next[1], afterHi, afterLo) <= 0;
+    }
+
+    private static String formatV4(long value) {
+        return (value >>> 24) + "." + ((value >>> 16) & 0xFF) + "." + ((value >>> 8) & 0xFF) + "." + (value & 0xFF);
+    }
+
+    private static String describeV4(long start, long end) {
+        if (start == end) {
+            return formatV4(start);
+        }
+        long length = end - start + 1;
+        if (Long.bitCount(length) == 1 && (start & (length - 1)) == 0) {
+            return formatV4(start) + "/" + (32 - Long.numberOfTrailingZeros(length));
+        }
+        return formatV4(start) + "-" + formatV4(end);
+    }
+}
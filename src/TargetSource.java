@@ -0,0 +1,65 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where the sweep takes its host:port pairs from. Hosts are identified by a numeric
+ * key so the scheduler can track them without holding their names as strings.
+ */
+public interface TargetSource {
+    /**
+     * Number of host:port pairs a full pass yields.
+     */
+    long size();
+
+    /**
+     * Every port that appears in the source.
+     */
+    PortSet ports();
+
+    /**
+     * Starts a new pass; the caller closes it.
+     */
+    Cursor cursor() throws IOException;
+
+    /**
+     * Starts a pass over the distinct hosts, once each, or returns null when the
+     * source cannot list them without walking every entry.
+     */
+    default Cursor hosts() throws IOException {
+        return null;
+    }
+
+    /**
+     * Host names among the targets, resolved up front by the scan.
+     */
+    default Collection<String> hostNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * The host behind a key returned by a cursor of this source.
+     */
+    String hostText(long hostKey);
+
+    List<String> describe();
+
+    interface Cursor extends Closeable {
+        boolean next() throws IOException;
+
+        long hostKey();
+
+        int port();
+
+        InetAddress address() throws UnknownHostException;
+
+        /**
+         * The current host's name, or null when it is a numeric address.
+         */
+        String hostName();
+    }
+}
@@ -0,0 +1,60 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors for blocking probe work. On Java 21+ every task gets its own virtual
+ * thread and callers bound concurrency with their own semaphores or queues; older
+ * JVMs get platform threads. Set MC_SCANNER_VIRTUAL_THREADS=0 to force platform threads.
+ */
+public final class WorkerThreads {
+    private static final Method VIRTUAL_PER_TASK = findVirtualFactory();
+
+    private WorkerThreads() {
+    }
+
+    public static boolean isVirtual() {
+        return VIRTUAL_PER_TASK != null;
+    }
+
+    /**
+     * One virtual thread per task when available, otherwise a cached pool of daemon threads.
+     */
+    public static ExecutorService newCachedExecutor(String name) {
+        ExecutorService virtual = newVirtualExecutor();
+        if (virtual != null) {
+            return virtual;
+        }
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    private static ExecutorService newVirtualExecutor() {
+        if (VIRTUAL_PER_TASK == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) VIRTUAL_PER_TASK.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Method findVirtualFactory() {
+        String setting = System.getenv("MC_SCANNER_VIRTUAL_THREADS");
+        if ("0".equals(setting) || "false".equalsIgnoreCase(setting)) {
+            return null;
+        }
+        try {
+            // Looked up by name so the jar still builds and runs on Java 8
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
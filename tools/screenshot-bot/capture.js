@@ -41,7 +41,9 @@ function usage () {
     '  --width <px>         Screenshot width (default: 1280)',
     '  --height <px>        Screenshot height (default: 720)',
     '  --view-distance <n>  Viewer chunk radius (default: 4)',
-    '  --edge <path>        Edge/Chrome executable path'
+    '  --edge <path>        Edge/Chrome executable path',
+    '  --connect-host <ip>  Connect to this address instead of resolving --host (still sent in the handshake)',
+    '  --connect-port <n>   Port for --connect-host (default: --port)'
   ].join('\n'))
 }
 
@@ -148,6 +150,8 @@ async function main () {
 
   const host = args.host
   const port = Number(args.port || 25565)
+  const connectHost = args['connect-host'] || ''
+  const connectPort = Number(args['connect-port'] || port)
   const username = args.username || 'MCScanner'
   const outPath = args.out
   const waitMs = Number(args['wait-ms'] || 3000)
@@ -192,6 +196,14 @@ async function main () {
     if (requestedVersion) {
       botOptions.version = requestedVersion
     }
+    if (connectHost) {
+      // Address resolved by the scanner; skips a second DNS/SRV lookup here
+      botOptions.connect = (client) => {
+        const socket = net.connect(connectPort, connectHost)
+        client.setSocket(socket)
+        client.emit('connect')
+      }
+    }
     bot = mineflayer.createBot(botOptions)
 
     const spawnTimeoutMs = Math.max(1000, Math.min(timeoutMs - 5000, 10000))